@@ -0,0 +1,38 @@
+package com.shivam.store.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.cache.Cache;
+
+/**
+ * Multi-key reads and writes over any Spring {@link Cache}. Two-tier caches get a single Redis round trip
+ * per call; other caches fall back to one operation per key.
+ */
+public final class BatchCaches {
+
+    private BatchCaches() {
+    }
+
+    public static Map<Object, Object> getAll(Cache cache, Collection<?> keys) {
+        if (cache instanceof TwoTierCache twoTierCache) {
+            return twoTierCache.getAll(keys);
+        }
+        Map<Object, Object> found = new LinkedHashMap<>();
+        for (Object key : keys) {
+            Cache.ValueWrapper value = cache.get(key);
+            if (value != null && value.get() != null) {
+                found.put(key, value.get());
+            }
+        }
+        return found;
+    }
+
+    public static void putAll(Cache cache, Map<?, ?> values) {
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.putAll(values);
+            return;
+        }
+        values.forEach(cache::put);
+    }
+}
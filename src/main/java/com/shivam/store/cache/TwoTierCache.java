@@ -0,0 +1,368 @@
+package com.shivam.store.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.types.Expiration;
+
+/**
+ * A {@link org.springframework.cache.Cache} that reads through a bounded in-process L1 before the shared
+ * Redis L2. Every write or eviction goes to both tiers and is broadcast so other nodes drop their L1 copy.
+ *
+ * <p>Loads through {@link #get(Object, Callable)} are coalesced per key, so concurrent misses on one node
+ * trigger a single L2 read and at most one recompute. With stale-while-revalidate enabled, L1 entries past
+ * their fresh TTL (or invalidated by {@link #clear()}) keep being served for the stale window while one
+ * background refresh repopulates them.
+ */
+public class TwoTierCache implements org.springframework.cache.Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCache.class);
+
+    private final String name;
+    private final Cache<String, LocalEntry> local;
+    private final org.springframework.cache.Cache remote;
+    private final TwoTierCacheManager manager;
+    private final long freshNanos;
+    private final boolean staleWhileRevalidate;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    TwoTierCache(String name,
+                 Cache<String, LocalEntry> local,
+                 org.springframework.cache.Cache remote,
+                 TwoTierCacheManager manager,
+                 long freshNanos,
+                 boolean staleWhileRevalidate,
+                 Executor refreshExecutor) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.manager = manager;
+        this.freshNanos = freshNanos;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        LocalEntry entry = local.getIfPresent(localKey);
+        if (entry != null && entry.isFresh()) {
+            return new SimpleValueWrapper(entry.value());
+        }
+        ValueWrapper remoteValue = remote.get(key);
+        if (remoteValue != null && remoteValue.get() != null) {
+            putLocal(localKey, remoteValue.get());
+        }
+        return remoteValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        LocalEntry entry = local.getIfPresent(localKey);
+        if (entry != null) {
+            if (entry.isFresh()) {
+                return (T) entry.value();
+            }
+            if (staleWhileRevalidate) {
+                refreshInBackground(key, localKey, valueLoader);
+                return (T) entry.value();
+            }
+        }
+        try {
+            return (T) load(key, localKey, valueLoader).join();
+        } catch (CompletionException ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            putLocal(localKey, value);
+        } else {
+            local.invalidate(localKey);
+        }
+        manager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        if (existing == null) {
+            manager.publishEvict(name, localKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocal(localKey(key));
+        manager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        evictLocal(localKey(key));
+        manager.publishEvict(name, localKey(key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+        manager.publishClear(name);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        clearLocal();
+        manager.publishClear(name);
+        return invalidated;
+    }
+
+    /**
+     * Looks up many keys at once: L1 first, then a single MGET against Redis for the rest. Remote hits are
+     * copied into L1. Keys that are in neither tier are absent from the result.
+     */
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> found = new LinkedHashMap<>();
+        List<Object> misses = new ArrayList<>();
+        for (Object key : keys) {
+            LocalEntry entry = local.getIfPresent(localKey(key));
+            if (entry != null && entry.isFresh()) {
+                found.put(key, entry.value());
+            } else {
+                misses.add(key);
+            }
+        }
+        if (!misses.isEmpty()) {
+            Map<Object, Object> remoteHits = remoteGetAll(misses);
+            remoteHits.forEach((key, value) -> putLocal(localKey(key), value));
+            found.putAll(remoteHits);
+        }
+        return found;
+    }
+
+    /**
+     * Backfills many freshly loaded values: one pipelined round trip of SETs with the cache TTL, then L1.
+     * Like a single-key load, this is not broadcast; other nodes only hold older copies within their L1 TTL.
+     */
+    public void putAll(Map<?, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        remotePutAll(values);
+        values.forEach((key, value) -> {
+            if (value != null) {
+                putLocal(localKey(key), value);
+            }
+        });
+    }
+
+    private Map<Object, Object> remoteGetAll(List<Object> keys) {
+        Map<Object, Object> found = new LinkedHashMap<>();
+        if (!(remote instanceof RedisCache redisCache)) {
+            for (Object key : keys) {
+                ValueWrapper value = remote.get(key);
+                if (value != null && value.get() != null) {
+                    found.put(key, value.get());
+                }
+            }
+            return found;
+        }
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        byte[][] redisKeys = keys.stream().map(key -> redisKey(config, key)).toArray(byte[][]::new);
+        List<byte[]> values;
+        try {
+            values = manager.redisTemplate().execute(
+                    (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(redisKeys));
+        } catch (RuntimeException ex) {
+            log.warn("cache_event=multi_get_failed cache={} reason={}", name, ex.getClass().getSimpleName());
+            return found;
+        }
+        for (int i = 0; values != null && i < values.size(); i++) {
+            byte[] bytes = values.get(i);
+            if (bytes == null) {
+                continue;
+            }
+            try {
+                Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+                if (value != null) {
+                    found.put(keys.get(i), value);
+                }
+            } catch (RuntimeException ex) {
+                // Undecodable entries are treated as misses and overwritten by the backfill.
+                log.warn("cache_event=multi_get_decode_failed cache={} reason={}", name, ex.getClass().getSimpleName());
+            }
+        }
+        return found;
+    }
+
+    private void remotePutAll(Map<?, ?> values) {
+        if (!(remote instanceof RedisCache redisCache)) {
+            values.forEach(remote::put);
+            return;
+        }
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        try {
+            manager.redisTemplate().executePipelined((RedisCallback<Object>) connection -> {
+                values.forEach((key, value) -> {
+                    if (value == null) {
+                        return;
+                    }
+                    ByteBuffer encoded = config.getValueSerializationPair().write(value);
+                    byte[] bytes = new byte[encoded.remaining()];
+                    encoded.get(bytes);
+                    Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                    Expiration expiration = ttl.isZero() || ttl.isNegative()
+                            ? Expiration.persistent()
+                            : Expiration.from(ttl);
+                    connection.stringCommands().set(redisKey(config, key), bytes, expiration,
+                            RedisStringCommands.SetOption.upsert());
+                });
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.warn("cache_event=multi_put_failed cache={} reason={}", name, ex.getClass().getSimpleName());
+        }
+    }
+
+    // Mirrors RedisCache#createCacheKey so batch reads and writes hit the same entries as single-key ones.
+    private byte[] redisKey(RedisCacheConfiguration config, Object key) {
+        ConversionService conversionService = config.getConversionService();
+        String converted = conversionService.canConvert(key.getClass(), String.class)
+                ? conversionService.convert(key, String.class)
+                : String.valueOf(key);
+        String redisKey = config.usePrefix() ? config.getKeyPrefixFor(name) + converted : converted;
+        ByteBuffer buffer = config.getKeySerializationPair().write(redisKey);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    void evictLocal(String localKey) {
+        local.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        if (staleWhileRevalidate) {
+            // Keep serving what we have while the next reader refreshes it, instead of a thundering rebuild.
+            local.asMap().replaceAll((key, entry) -> entry.stale());
+        } else {
+            local.invalidateAll();
+        }
+    }
+
+    private CompletableFuture<Object> load(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(localKey, loading);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            loading.complete(loadThrough(key, localKey, valueLoader));
+        } catch (Throwable ex) {
+            loading.completeExceptionally(ex);
+        } finally {
+            inFlight.remove(localKey, loading);
+        }
+        return loading;
+    }
+
+    private Object loadThrough(Object key, String localKey, Callable<?> valueLoader) throws Exception {
+        ValueWrapper remoteValue = remote.get(key);
+        Object value = remoteValue != null ? remoteValue.get() : null;
+        if (value == null) {
+            value = valueLoader.call();
+            if (value != null) {
+                remote.put(key, value);
+            }
+        }
+        if (value != null) {
+            putLocal(localKey, value);
+        }
+        return value;
+    }
+
+    private void refreshInBackground(Object key, String localKey, Callable<?> valueLoader) {
+        if (inFlight.containsKey(localKey)) {
+            return;
+        }
+        refreshExecutor.execute(() -> load(key, localKey, valueLoader).whenComplete((value, ex) -> {
+            if (ex != null) {
+                log.warn("cache_event=background_refresh_failed cache={} reason={}", name, ex.getClass().getSimpleName());
+            }
+        }));
+    }
+
+    private void putLocal(String localKey, Object value) {
+        local.put(localKey, new LocalEntry(value, System.nanoTime() + freshNanos, false));
+    }
+
+    // RedisCache stringifies keys as well, so L1 keys line up with the L2 entries and with broadcast messages.
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    record LocalEntry(Object value, long freshUntilNanos, boolean invalidated) {
+
+        boolean isFresh() {
+            return !invalidated && System.nanoTime() - freshUntilNanos < 0;
+        }
+
+        LocalEntry stale() {
+            return new LocalEntry(value, freshUntilNanos, true);
+        }
+    }
+}
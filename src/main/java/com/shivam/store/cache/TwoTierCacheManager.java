@@ -0,0 +1,172 @@
+package com.shivam.store.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Fronts a {@link RedisCacheManager} with per-cache Caffeine L1 caches bounded by size and TTL.
+ * Invalidations are published on {@link #INVALIDATION_CHANNEL} and applied to the L1 of every other node,
+ * so hot reads are served from local memory while nodes stay coherent. If a broadcast is lost, the L1 TTL
+ * bounds how long a node can serve a stale entry.
+ */
+public class TwoTierCacheManager implements CacheManager, InitializingBean, DisposableBean, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidation";
+
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCacheManager.class);
+    private static final char SEPARATOR = '\n';
+
+    private final RedisCacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final long localMaximumSize;
+    private final Duration localTimeToLive;
+    private final Duration staleWhileRevalidate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    // Node-local caches kept outside this manager that still follow the invalidation channel.
+    private final Map<String, Consumer<String>> localCaches = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cache-refresh-", 0).factory());
+
+    /**
+     * @param localTimeToLive      how long an L1 entry is served as fresh
+     * @param staleWhileRevalidate how much longer an expired or cleared L1 entry may still be served while it
+     *                             is refreshed in the background; zero disables stale reads
+     */
+    public TwoTierCacheManager(RedisCacheManager remote,
+                               StringRedisTemplate redisTemplate,
+                               long localMaximumSize,
+                               Duration localTimeToLive,
+                               Duration staleWhileRevalidate) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.localMaximumSize = localMaximumSize;
+        this.localTimeToLive = localTimeToLive;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // The Redis manager is not a bean of its own, so its initial cache configurations are loaded here.
+        remote.afterPropertiesSet();
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        long lifetimeNanos = localTimeToLive.plus(staleWhileRevalidate).toNanos();
+        com.github.benmanes.caffeine.cache.Cache<String, TwoTierCache.LocalEntry> local = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfter(new Expiry<String, TwoTierCache.LocalEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, TwoTierCache.LocalEntry entry, long currentTime) {
+                        return lifetimeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TwoTierCache.LocalEntry entry, long currentTime, long currentDuration) {
+                        // Marking an entry stale must not extend its life; storing a fresh value restarts it.
+                        return entry.invalidated() ? currentDuration : lifetimeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TwoTierCache.LocalEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        return new TwoTierCache(name, local, remoteCache, this, localTimeToLive.toNanos(),
+                !staleWhileRevalidate.isZero(), refreshExecutor);
+    }
+
+    StringRedisTemplate redisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * Lets a node-local cache that is not a Spring cache share the invalidation channel: {@code evictLocal} runs
+     * with the key whenever another node calls {@link #broadcastEvict} for {@code name}. Names must not clash
+     * with cache names.
+     */
+    public void registerLocalCache(String name, Consumer<String> evictLocal) {
+        localCaches.put(name, evictLocal);
+    }
+
+    /** Tells every other node to evict {@code key} from its local cache registered under {@code name}. */
+    public void broadcastEvict(String name, String key) {
+        publishEvict(name, key);
+    }
+
+    void publishEvict(String cacheName, String key) {
+        publish(nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+    }
+
+    void publishClear(String cacheName) {
+        publish(nodeId + SEPARATOR + cacheName);
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (RuntimeException ex) {
+            log.warn("cache_event=invalidation_publish_failed reason={}", ex.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(String.valueOf(SEPARATOR), 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoTierCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            var localCache = localCaches.get(parts[1]);
+            if (localCache != null && parts.length == 3) {
+                localCache.accept(parts[2]);
+            }
+            return;
+        }
+        if (parts.length == 3) {
+            cache.evictLocal(parts[2]);
+        } else {
+            cache.clearLocal();
+        }
+    }
+}
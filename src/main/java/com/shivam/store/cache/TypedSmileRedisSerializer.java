@@ -0,0 +1,141 @@
+package com.shivam.store.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Binary cache codec: a one-byte type id followed by a Smile document for that type.
+ *
+ * <p>Only types registered up front can be written or read, and each is bound to a concrete {@link JavaType},
+ * so no class names are stored in the payload and there is no polymorphic deserialization at all. Unknown
+ * type ids fail with a {@link SerializationException}, which Spring treats as a cache miss.
+ */
+public final class TypedSmileRedisSerializer implements RedisSerializer<Object> {
+
+    private final List<Registration> registrations;
+    private final Map<Byte, Registration> registrationsById;
+
+    private TypedSmileRedisSerializer(List<Registration> registrations) {
+        this.registrations = List.copyOf(registrations);
+        this.registrationsById = new HashMap<>();
+        for (Registration registration : registrations) {
+            if (registrationsById.putIfAbsent(registration.id(), registration) != null) {
+                throw new IllegalArgumentException("Duplicate cache type id " + registration.id());
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Registration registration = registrationFor(value);
+        try {
+            byte[] body = registration.writer().writeValueAsBytes(value);
+            byte[] bytes = new byte[body.length + 1];
+            bytes[0] = registration.id();
+            System.arraycopy(body, 0, bytes, 1, body.length);
+            return bytes;
+        } catch (IOException ex) {
+            throw new SerializationException("Could not write cache value of type " + registration.type(), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        // OWASP A08: the header selects one of the registered types; anything else is rejected outright.
+        Registration registration = registrationsById.get(bytes[0]);
+        if (registration == null) {
+            throw new SerializationException("Unknown cache type id " + bytes[0]);
+        }
+        try {
+            return registration.reader().readValue(bytes, 1, bytes.length - 1);
+        } catch (IOException ex) {
+            throw new SerializationException("Could not read cache value of type " + registration.type(), ex);
+        }
+    }
+
+    private Registration registrationFor(Object value) {
+        for (Registration registration : registrations) {
+            if (registration.accepts().test(value)) {
+                return registration;
+            }
+        }
+        throw new SerializationException("Type is not registered for caching: " + value.getClass().getName());
+    }
+
+    private record Registration(byte id,
+                                JavaType type,
+                                Predicate<Object> accepts,
+                                ObjectWriter writer,
+                                ObjectReader reader) {
+    }
+
+    public static final class Builder {
+
+        private final ObjectMapper mapper;
+        private final List<Registration> registrations = new ArrayList<>();
+
+        private Builder() {
+            SmileFactory factory = SmileFactory.builder()
+                    // Field names repeat for every element of a list; back-references keep them to one byte.
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                    .build();
+            this.mapper = new ObjectMapper(factory)
+                    // Entries written by a newer node with extra fields must still be readable during a rollout.
+                    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+
+        public Builder register(int id, Class<?> type) {
+            return register(id, mapper.constructType(type), type::isInstance);
+        }
+
+        public Builder registerList(int id, Class<?> elementType) {
+            JavaType listType = mapper.getTypeFactory().constructCollectionType(List.class, elementType);
+            return register(id, listType, value -> value instanceof List<?> list && allInstances(list, elementType));
+        }
+
+        private Builder register(int id, JavaType type, Predicate<Object> accepts) {
+            if (id < 1 || id > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Cache type id must be between 1 and 127");
+            }
+            registrations.add(new Registration((byte) id, type, accepts, mapper.writerFor(type), mapper.readerFor(type)));
+            return this;
+        }
+
+        public TypedSmileRedisSerializer build() {
+            return new TypedSmileRedisSerializer(registrations);
+        }
+
+        private static boolean allInstances(Collection<?> values, Class<?> type) {
+            for (Object value : values) {
+                if (!type.isInstance(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.shivam.store.carts;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One change to a cart line: add {@code quantity} to it, set it to {@code quantity}, or remove it. A batch is
+ * coalesced to at most one change per product before it touches storage, so a burst of clicks on the same item
+ * costs one write.
+ */
+public record CartItemChange(Long productId, Kind kind, int quantity) {
+
+    // Same bound as a single SET or PUT of a line; coalescing must not let a batch reach past it.
+    public static final int MAX_QUANTITY = 5;
+
+    public enum Kind {
+        ADD,
+        SET,
+        REMOVE
+    }
+
+    /**
+     * The net effect of the given changes, in order of each product's first appearance. A batch whose net
+     * change for a product adds or sets more than {@link #MAX_QUANTITY} is rejected as a whole.
+     */
+    public static List<CartItemChange> coalesce(List<CartItemChange> changes) {
+        Map<Long, CartItemChange> net = new LinkedHashMap<>();
+        for (CartItemChange change : changes) {
+            net.merge(change.productId(), change, CartItemChange::then);
+        }
+        for (CartItemChange change : net.values()) {
+            if (change.kind() != Kind.REMOVE && change.quantity() > MAX_QUANTITY) {
+                throw new IllegalArgumentException("Quantity for product " + change.productId()
+                        + " exceeds " + MAX_QUANTITY);
+            }
+        }
+        return List.copyOf(net.values());
+    }
+
+    private CartItemChange then(CartItemChange next) {
+        if (next.kind() != Kind.ADD) {
+            return next;
+        }
+        return switch (kind) {
+            case ADD -> new CartItemChange(productId, Kind.ADD, quantity + next.quantity());
+            case SET -> new CartItemChange(productId, Kind.SET, quantity + next.quantity());
+            case REMOVE -> new CartItemChange(productId, Kind.SET, next.quantity());
+        };
+    }
+}
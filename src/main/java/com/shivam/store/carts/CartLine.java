@@ -0,0 +1,7 @@
+package com.shivam.store.carts;
+
+import java.math.BigDecimal;
+
+/** One cart line as returned by a single-statement write: the product columns a cart item shows, and the new quantity. */
+public record CartLine(Long productId, String name, BigDecimal price, int quantity) {
+}
@@ -1,6 +1,7 @@
 package com.shivam.store.carts;
 
 import com.shivam.store.entities.User;
+import com.shivam.store.services.TokenDigest;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -27,4 +28,9 @@ public record CartOwner(Optional<User> user, Optional<String> guestToken) {
     public boolean hasGuestToken() {
         return guestToken.filter(token -> !token.isBlank()).isPresent();
     }
+
+    /** The key guest carts are stored under, in Postgres and Redis alike: a SHA-256 of the token, never the token. */
+    public Optional<String> guestTokenHash() {
+        return guestToken.filter(token -> !token.isBlank()).map(TokenDigest::sha256Hex);
+    }
 }
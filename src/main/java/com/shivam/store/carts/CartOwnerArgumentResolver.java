@@ -53,7 +53,7 @@ public class CartOwnerArgumentResolver implements HandlerMethodArgumentResolver
         if (authenticatedUser.isPresent()) {
             // Clear guest token cookie if present
             clearGuestCookie(response);
-            return CartOwner.authenticated(authenticatedUser.get());
+            return CartOwner.authenticated(authService.getReference(authenticatedUser.get()));
         }
 
         String guestToken = extractGuestToken(request)
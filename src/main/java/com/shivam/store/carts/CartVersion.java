@@ -0,0 +1,7 @@
+package com.shivam.store.carts;
+
+import java.util.UUID;
+
+/** A cart id with the version it had when it was read; the version is what {@code If-Match} is compared to. */
+public record CartVersion(UUID cartId, long version) {
+}
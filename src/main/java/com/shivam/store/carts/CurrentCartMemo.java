@@ -0,0 +1,51 @@
+package com.shivam.store.carts;
+
+import com.shivam.store.entities.Cart;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Remembers the cart resolved for the current request, so a request never resolves its cart twice. Outside
+ * of a web request (schedulers, plain unit tests) nothing is remembered.
+ */
+public final class CurrentCartMemo {
+
+    private static final String ATTRIBUTE_PREFIX = CurrentCartMemo.class.getName() + ".";
+
+    private CurrentCartMemo() {
+    }
+
+    public static Cart get(CartOwner owner) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        var key = key(owner);
+        if (attributes == null || key == null) {
+            return null;
+        }
+        return (Cart) attributes.getAttribute(key, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public static void put(CartOwner owner, Cart cart) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        var key = key(owner);
+        if (attributes != null && key != null) {
+            attributes.setAttribute(key, cart, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public static void forget(CartOwner owner) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        var key = key(owner);
+        if (attributes != null && key != null) {
+            attributes.removeAttribute(key, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static String key(CartOwner owner) {
+        if (owner.hasUser()) {
+            var userId = owner.user().get().getId();
+            return userId != null ? ATTRIBUTE_PREFIX + "user:" + userId : null;
+        }
+        // The guest token is a bearer secret, so only its digest goes into request attributes.
+        return owner.guestTokenHash().map(hash -> ATTRIBUTE_PREFIX + "guest:" + hash).orElse(null);
+    }
+}
@@ -0,0 +1,149 @@
+package com.shivam.store.carts;
+
+import com.shivam.store.config.JwtConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes guest carts whose guest token has expired. A guest cart is created after its token was issued, so
+ * once the cart is older than {@code spring.jwt.guest-expiration} nobody can reach it again.
+ *
+ * <p>Each run works in batches of {@code batch-size} carts, each batch in its own short transaction, and
+ * stops after {@code max-batches} or when a batch comes back short. Rows another transaction holds are
+ * skipped rather than waited on, so the reaper never blocks a shopper and several nodes can run it at once.
+ * Runs happen every {@code interval} on the reaper's own thread, so the pauses between batches never hold up
+ * the jobs on Spring's shared scheduler.
+ */
+@Component
+@ConditionalOnProperty(name = "app.carts.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class GuestCartReaper implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartReaper.class);
+
+    // carts.date_created is a DATE, so only carts created before the day the cutoff falls on are certainly expired.
+    private static final String SELECT_BATCH = """
+            SELECT id FROM carts
+            WHERE guest_token_hash IS NOT NULL AND user_id IS NULL AND date_created < ?
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE cart_id IN (:ids)";
+
+    private static final String DELETE_CARTS = "DELETE FROM carts WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter cartsReclaimed;
+    private final Counter itemsReclaimed;
+    private final long guestExpirationSeconds;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration pause;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public GuestCartReaper(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           JwtConfig jwtConfig,
+                           @Value("${app.carts.reaper.batch-size:500}") int batchSize,
+                           @Value("${app.carts.reaper.max-batches:20}") int maxBatches,
+                           @Value("${app.carts.reaper.pause:PT0.2S}") Duration pause,
+                           @Value("${app.carts.reaper.interval:PT10M}") Duration interval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cartsReclaimed = reclaimedCounter(meterRegistry, "carts");
+        this.itemsReclaimed = reclaimedCounter(meterRegistry, "cart_items");
+        this.guestExpirationSeconds = jwtConfig.getGuestExpiration();
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pause = pause;
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("guest-cart-reaper").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::reap, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void reap() {
+        var createdBefore = LocalDateTime.now().minusSeconds(guestExpirationSeconds).toLocalDate();
+        long started = System.nanoTime();
+        int carts = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                if (batch > 0 && !pause.isZero()) {
+                    Thread.sleep(pause.toMillis());
+                }
+                int reaped = reapBatch(createdBefore);
+                carts += reaped;
+                if (reaped < batchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("cart_event=reap_failed reason={}", ex.getClass().getSimpleName());
+        }
+        if (carts > 0) {
+            log.info("cart_event=guest_carts_reaped carts={} elapsedMs={}", carts, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /** Deletes up to one batch of expired guest carts with their items; returns the number of carts deleted. */
+    int reapBatch(LocalDate createdBefore) {
+        Integer reaped = transactionTemplate.execute(status -> {
+            List<UUID> ids = jdbcTemplate.queryForList(SELECT_BATCH, UUID.class, Date.valueOf(createdBefore), batchSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            var params = Map.of("ids", ids);
+            // Items first, so the count is exact instead of hidden inside the ON DELETE CASCADE.
+            itemsReclaimed.increment(namedJdbcTemplate.update(DELETE_ITEMS, params));
+            int deleted = namedJdbcTemplate.update(DELETE_CARTS, params);
+            cartsReclaimed.increment(deleted);
+            return deleted;
+        });
+        return reaped != null ? reaped : 0;
+    }
+
+    private static Counter reclaimedCounter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("carts.reaper.reclaimed")
+                .description("Rows deleted by the guest cart reaper")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,447 @@
+package com.shivam.store.carts;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.dtos.CartDto;
+import com.shivam.store.dtos.CartItemDto;
+import com.shivam.store.dtos.CartProductDto;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.Product;
+import com.shivam.store.entities.User;
+import com.shivam.store.exceptions.CartItemNotFoundException;
+import com.shivam.store.exceptions.CartVersionMismatchException;
+import com.shivam.store.exceptions.IncorrectUserException;
+import com.shivam.store.repositories.CartRepository;
+import com.shivam.store.repositories.ProductRepository;
+import com.shivam.store.repositories.UserRepository;
+import com.shivam.store.services.ProductService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Cart storage for {@code app.carts.store=redis}. Each active cart is a Redis hash of productId to quantity
+ * (plus an {@code id} field) and every mutation is a single atomic script, so the hot path never touches JPA.
+ *
+ * <p>Guest carts live only in Redis and expire with the guest token. User carts are hydrated from Postgres
+ * on first use and written back behind: mutations add the user id to a dirty set that
+ * {@link #flushDirty()} drains in batches. Checkout flushes the user's cart synchronously first.
+ *
+ * <p>The hash also carries a {@code version} field that every mutation bumps, and that the scripts compare
+ * against the client's {@code If-Match} before writing, so conditional writes are as strict as with the JPA
+ * store. Guest carts start at 0; user carts start at their Postgres version each time they are hydrated.
+ */
+@Component
+@ConditionalOnProperty(name = "app.carts.store", havingValue = "redis")
+public class RedisCartStore {
+
+    static final String DIRTY_KEY = "cart:dirty";
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCartStore.class);
+    private static final String ID_FIELD = "id";
+    private static final String VERSION_FIELD = "version";
+    private static final long MISSING_CART = -2;
+    private static final long MISSING_ITEM = -1;
+    private static final long VERSION_MISMATCH = -3;
+
+    // Shared by every mutation: KEYS[1] cart, KEYS[2] dirty set; ARGV[1] ttl, ARGV[2] sliding ttl, ARGV[3] dirty
+    // member, ARGV[4] the If-Match version or ''. Each script returns {result, cart version after the script}.
+    private static final String TOUCH = """
+            local function touch()
+              if ARGV[2] == '1' or redis.call('TTL', KEYS[1]) < 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[1])
+              end
+              if ARGV[3] ~= '' then
+                redis.call('SADD', KEYS[2], ARGV[3])
+              end
+              return redis.call('HINCRBY', KEYS[1], 'version', 1)
+            end
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              return {-2, 0}
+            end
+            local version = redis.call('HGET', KEYS[1], 'version') or '0'
+            if ARGV[4] ~= '' and version ~= ARGV[4] then
+              return {-3, tonumber(version)}
+            end
+            """;
+
+    private static final RedisScript<List> ADD_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            local quantity = redis.call('HINCRBY', KEYS[1], ARGV[5], ARGV[6])
+            return {quantity, touch()}
+            """, List.class);
+
+    private static final RedisScript<List> SET_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            if redis.call('HEXISTS', KEYS[1], ARGV[5]) == 0 then
+              return {-1, tonumber(version)}
+            end
+            redis.call('HSET', KEYS[1], ARGV[5], ARGV[6])
+            return {tonumber(ARGV[6]), touch()}
+            """, List.class);
+
+    private static final RedisScript<List> DECREMENT_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            if redis.call('HEXISTS', KEYS[1], ARGV[5]) == 0 then
+              return {-1, tonumber(version)}
+            end
+            local quantity = redis.call('HINCRBY', KEYS[1], ARGV[5], -1)
+            if quantity <= 0 then
+              redis.call('HDEL', KEYS[1], ARGV[5])
+              quantity = 0
+            end
+            return {quantity, touch()}
+            """, List.class);
+
+    private static final RedisScript<List> CLEAR_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+              if field ~= 'id' and field ~= 'version' then
+                redis.call('HDEL', KEYS[1], field)
+              end
+            end
+            return {0, touch()}
+            """, List.class);
+
+    // ARGV[5..] are product/kind/quantity triples, one per product.
+    private static final RedisScript<List> APPLY_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            for i = 5, #ARGV, 3 do
+              if ARGV[i + 1] == 'ADD' then
+                redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 2])
+              elseif ARGV[i + 1] == 'SET' then
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 2])
+              else
+                redis.call('HDEL', KEYS[1], ARGV[i])
+              end
+            end
+            return {0, touch()}
+            """, List.class);
+
+    // KEYS[3] guest cart, folded into the user cart KEYS[1] and deleted.
+    private static final RedisScript<List> MERGE_SCRIPT = new DefaultRedisScript<>(TOUCH + """
+            local items = redis.call('HGETALL', KEYS[3])
+            for i = 1, #items, 2 do
+              if items[i] ~= 'id' and items[i] ~= 'version' then
+                redis.call('HINCRBY', KEYS[1], items[i], items[i + 1])
+              end
+            end
+            redis.call('DEL', KEYS[3])
+            return {#items / 2, touch()}
+            """, List.class);
+
+    // ARGV[1] ttl, then field/value pairs. A cart that appeared concurrently wins over this hydration.
+    private static final RedisScript<Long> HYDRATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+              redis.call('EXPIRE', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final long guestTtlSeconds;
+    private final long userTtlSeconds;
+    private final int flushBatchSize;
+
+    public RedisCartStore(StringRedisTemplate redisTemplate,
+                          CartRepository cartRepository,
+                          ProductRepository productRepository,
+                          UserRepository userRepository,
+                          ProductService productService,
+                          PlatformTransactionManager transactionManager,
+                          JwtConfig jwtConfig,
+                          @Value("${app.carts.redis.user-ttl:PT24H}") Duration userTtl,
+                          @Value("${app.carts.redis.flush-batch-size:200}") int flushBatchSize) {
+        this.redisTemplate = redisTemplate;
+        this.cartRepository = cartRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.guestTtlSeconds = jwtConfig.getGuestExpiration();
+        this.userTtlSeconds = userTtl.toSeconds();
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public CartDto getCart(CartOwner owner) {
+        var ref = refFor(owner);
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(ref.key());
+        if (entries.isEmpty()) {
+            hydrate(ref);
+            entries = redisTemplate.opsForHash().entries(ref.key());
+        }
+        return toDto(entries);
+    }
+
+    /**
+     * {@code expectedVersion} is the client's {@code If-Match}, compared inside the script; null writes
+     * unconditionally. The returned item carries the cart version after the write.
+     */
+    public CartItemDto addProduct(Long productId, CartOwner owner, Long expectedVersion) {
+        var product = productService.getProduct(productId);
+        var written = mutate(ADD_SCRIPT, refFor(owner), expectedVersion, productId.toString(), "1");
+        return toItemDto(product, (int) written.result(), written.version());
+    }
+
+    public CartItemDto updateItem(Long productId, Integer quantity, CartOwner owner, Long expectedVersion) {
+        var written = mutate(SET_SCRIPT, refFor(owner), expectedVersion, productId.toString(), quantity.toString());
+        if (written.result() == MISSING_ITEM) {
+            throw new CartItemNotFoundException();
+        }
+        return toItemDto(productService.getProduct(productId), (int) written.result(), written.version());
+    }
+
+    /** Returns the cart version after the write; removing a product that is not in the cart leaves it as is. */
+    public long removeProduct(Long productId, CartOwner owner, Long expectedVersion) {
+        return mutate(DECREMENT_SCRIPT, refFor(owner), expectedVersion, productId.toString()).version();
+    }
+
+    public long clear(CartOwner owner, Long expectedVersion) {
+        return mutate(CLEAR_SCRIPT, refFor(owner), expectedVersion).version();
+    }
+
+    /** Applies coalesced changes in one script and returns the resulting cart. */
+    public CartDto apply(Collection<CartItemChange> changes, CartOwner owner, Long expectedVersion) {
+        List<String> args = new ArrayList<>();
+        for (CartItemChange change : changes) {
+            args.add(change.productId().toString());
+            args.add(change.kind().name());
+            args.add(String.valueOf(change.quantity()));
+        }
+        var written = mutate(APPLY_SCRIPT, refFor(owner), expectedVersion, args.toArray(String[]::new));
+        var cartDto = getCart(owner);
+        // A write that lands between the script and the read shows in the items; the ETag stays this write's.
+        cartDto.setVersion(written.version());
+        return cartDto;
+    }
+
+    /** Folds a guest cart into the user's cart in one script; the guest cart is gone afterwards. */
+    public void promoteToUser(String guestToken, User user) {
+        var userRef = refFor(CartOwner.authenticated(user));
+        var guestKey = refFor(CartOwner.guest(guestToken)).key();
+        var keys = List.of(userRef.key(), DIRTY_KEY, guestKey);
+        var args = userRef.scriptArgs(null);
+        var merged = Written.of(redisTemplate.execute(MERGE_SCRIPT, keys, args.toArray()));
+        if (merged.result() == MISSING_CART) {
+            hydrate(userRef);
+            redisTemplate.execute(MERGE_SCRIPT, keys, args.toArray());
+        }
+    }
+
+    /** Writes the user's cart through to Postgres now, e.g. before checkout reads it from JPA. */
+    public void flush(CartOwner owner) {
+        var userId = owner.user().map(User::getId).orElse(null);
+        if (userId == null) {
+            return;
+        }
+        redisTemplate.opsForSet().remove(DIRTY_KEY, userId.toString());
+        try {
+            persist(userId);
+        } catch (RuntimeException ex) {
+            redisTemplate.opsForSet().add(DIRTY_KEY, userId.toString());
+            throw ex;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.carts.redis.flush-interval:PT5S}")
+    public void flushDirty() {
+        List<String> userIds;
+        try {
+            userIds = redisTemplate.opsForSet().pop(DIRTY_KEY, flushBatchSize);
+        } catch (RuntimeException ex) {
+            log.warn("cart_event=flush_poll_failed reason={}", ex.getClass().getSimpleName());
+            return;
+        }
+        if (userIds == null) {
+            return;
+        }
+        for (String userId : userIds) {
+            try {
+                persist(Long.parseLong(userId));
+            } catch (RuntimeException ex) {
+                log.warn("cart_event=flush_failed userId={} reason={}", userId, ex.getClass().getSimpleName());
+                redisTemplate.opsForSet().add(DIRTY_KEY, userId);
+            }
+        }
+    }
+
+    private Written mutate(RedisScript<List> script, CartRef ref, Long expectedVersion, String... extraArgs) {
+        var keys = List.of(ref.key(), DIRTY_KEY);
+        var args = ref.scriptArgs(expectedVersion);
+        args.addAll(List.of(extraArgs));
+        var written = Written.of(redisTemplate.execute(script, keys, args.toArray()));
+        if (written.result() == MISSING_CART) {
+            hydrate(ref);
+            written = Written.of(redisTemplate.execute(script, keys, args.toArray()));
+        }
+        if (written.result() == VERSION_MISMATCH) {
+            throw new CartVersionMismatchException();
+        }
+        return written;
+    }
+
+    private void hydrate(CartRef ref) {
+        List<String> fields = new ArrayList<>();
+        fields.add(String.valueOf(ref.ttlSeconds()));
+        if (ref.userId() == null) {
+            fields.addAll(List.of(ID_FIELD, UUID.randomUUID().toString(), VERSION_FIELD, "0"));
+        } else {
+            // Users keep their Postgres cart id, so create the row on first use like the JPA store does.
+            transactionTemplate.executeWithoutResult(status -> {
+                var user = userRepository.getReferenceById(ref.userId());
+                var cart = cartRepository.findLatestWithItemsByUser(user).orElseGet(() -> {
+                    var created = new Cart();
+                    created.setUser(user);
+                    return cartRepository.save(created);
+                });
+                fields.addAll(List.of(ID_FIELD, cart.getId().toString(),
+                        VERSION_FIELD, String.valueOf(cart.getVersion() != null ? cart.getVersion() : 0L)));
+                cart.getCartItems().forEach(item -> fields.addAll(List.of(
+                        item.getProduct().getId().toString(), item.getQuantity().toString())));
+            });
+        }
+        redisTemplate.execute(HYDRATE_SCRIPT, List.of(ref.key()), fields.toArray());
+    }
+
+    private void persist(long userId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(userKey(userId));
+        if (entries.isEmpty()) {
+            // Expired without pending changes; Postgres already has the last flushed state.
+            return;
+        }
+        Map<Long, Integer> quantities = quantities(entries);
+        transactionTemplate.executeWithoutResult(status -> {
+            var user = userRepository.getReferenceById(userId);
+            var cart = cartRepository.findLatestWithItemsByUser(user).orElseGet(() -> {
+                var created = new Cart();
+                created.setUser(user);
+                return created;
+            });
+            // Products deleted since they were added are dropped rather than violating the foreign key.
+            Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            cart.removeItemsIf(item -> !products.containsKey(item.getProduct().getId()));
+            products.forEach((productId, product) -> {
+                var item = cart.getItem(productId);
+                if (item == null) {
+                    item = cart.addItem(product);
+                }
+                item.setQuantity(quantities.get(productId));
+            });
+            cartRepository.save(cart);
+        });
+    }
+
+    private CartDto toDto(Map<Object, Object> entries) {
+        var cartDto = new CartDto();
+        var id = entries.get(ID_FIELD);
+        cartDto.setId(id != null ? UUID.fromString(id.toString()) : null);
+        var version = entries.get(VERSION_FIELD);
+        cartDto.setVersion(version != null ? Long.parseLong(version.toString()) : 0L);
+
+        Map<Long, Integer> quantities = quantities(entries);
+        List<ProductDto> products = new ArrayList<>();
+        var productIds = new ArrayList<>(quantities.keySet());
+        for (int from = 0; from < productIds.size(); from += ProductService.MAX_BATCH_SIZE) {
+            var batch = productIds.subList(from, Math.min(from + ProductService.MAX_BATCH_SIZE, productIds.size()));
+            products.addAll(productService.getProductsByIds(batch));
+        }
+        var total = BigDecimal.ZERO;
+        for (ProductDto product : products) {
+            var item = toItemDto(product, quantities.get(product.getId()));
+            cartDto.getItems().add(item);
+            total = total.add(item.getTotalPrice());
+        }
+        cartDto.setTotalPrice(total);
+        return cartDto;
+    }
+
+    // Sorted by product id, matching CartMapper's item order.
+    private static Map<Long, Integer> quantities(Map<Object, Object> entries) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        entries.forEach((field, value) -> {
+            if (!ID_FIELD.equals(field) && !VERSION_FIELD.equals(field)) {
+                quantities.put(Long.parseLong(field.toString()), Integer.parseInt(value.toString()));
+            }
+        });
+        return quantities;
+    }
+
+    private static CartItemDto toItemDto(ProductDto product, int quantity, long cartVersion) {
+        var item = toItemDto(product, quantity);
+        item.setCartVersion(cartVersion);
+        return item;
+    }
+
+    private static CartItemDto toItemDto(ProductDto product, int quantity) {
+        var cartProduct = new CartProductDto();
+        cartProduct.setId(product.getId());
+        cartProduct.setName(product.getName());
+        cartProduct.setPrice(product.getPrice());
+
+        var item = new CartItemDto();
+        item.setProduct(cartProduct);
+        item.setQuantity(quantity);
+        item.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+
+    private CartRef refFor(CartOwner owner) {
+        if (owner.hasUser()) {
+            var userId = owner.user().get().getId();
+            return new CartRef(userKey(userId), userId, userTtlSeconds, true);
+        }
+        if (owner.hasGuestToken()) {
+            // OWASP A02: key guest carts by a digest so raw tokens never appear in Redis.
+            var digest = owner.guestTokenHash().get();
+            return new CartRef("cart:guest:" + digest, null, guestTtlSeconds, false);
+        }
+        throw new IncorrectUserException();
+    }
+
+    private static String userKey(long userId) {
+        return "cart:user:" + userId;
+    }
+
+    /** Guest carts keep the TTL they were created with; user carts slide and are marked dirty on change. */
+    private record CartRef(String key, Long userId, long ttlSeconds, boolean slidingTtl) {
+
+        List<String> scriptArgs(Long expectedVersion) {
+            List<String> args = new ArrayList<>();
+            args.add(String.valueOf(ttlSeconds));
+            args.add(slidingTtl ? "1" : "0");
+            args.add(userId != null ? userId.toString() : "");
+            args.add(expectedVersion != null ? expectedVersion.toString() : "");
+            return args;
+        }
+    }
+
+    /** A script's {result, version} reply. */
+    private record Written(long result, long version) {
+
+        static Written of(List<?> reply) {
+            return reply != null && reply.size() == 2
+                    ? new Written(((Number) reply.get(0)).longValue(), ((Number) reply.get(1)).longValue())
+                    : new Written(0L, 0L);
+        }
+    }
+}
@@ -3,9 +3,14 @@ package com.shivam.store.config;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.shivam.store.cache.TwoTierCacheManager;
+import com.shivam.store.cache.TypedSmileRedisSerializer;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.dtos.ProductPageDto;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
@@ -16,8 +21,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
 @EnableCaching
@@ -25,7 +34,49 @@ public class CacheConfig {
 
     @Bean
     @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis", matchIfMissing = true)
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoTierCacheManager cacheManager(
+            RedisConnectionFactory connectionFactory,
+            StringRedisTemplate redisTemplate,
+            @Value("${app.cache.local.maximum-size:10000}") long localMaximumSize,
+            @Value("${app.cache.local.time-to-live:PT30S}") Duration localTimeToLive,
+            @Value("${app.cache.local.stale-while-revalidate:PT0S}") Duration staleWhileRevalidate,
+            @Value("${app.cache.codec:smile}") String codec) {
+        RedisCacheConfiguration baseConfig = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(2))
+                .disableCachingNullValues()
+                // Keys carry the codec so switching codecs never decodes entries written in the other format.
+                .computePrefixWith(cacheName -> codec + ":" + cacheName + "::")
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(cacheValueSerializer(codec)));
+
+        Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
+        cacheConfigurations.put("products", baseConfig.entryTtl(Duration.ofMinutes(5)));
+        cacheConfigurations.put("productById", baseConfig.entryTtl(Duration.ofMinutes(10)));
+        cacheConfigurations.put("productPages", baseConfig.entryTtl(Duration.ofMinutes(5)));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(baseConfig)
+                .withInitialCacheConfigurations(cacheConfigurations)
+                .build();
+
+        // L1 entries live well under the L2 TTLs; pub/sub keeps them coherent in between.
+        return new TwoTierCacheManager(redisCacheManager, redisTemplate, localMaximumSize, localTimeToLive, staleWhileRevalidate);
+    }
+
+    public static RedisSerializer<Object> cacheValueSerializer(String codec) {
+        return switch (codec) {
+            // Type ids are part of the stored format: never reuse or renumber them, only append.
+            case "smile" -> TypedSmileRedisSerializer.builder()
+                    .register(1, ProductDto.class)
+                    .registerList(2, ProductDto.class)
+                    .register(3, ProductPageDto.class)
+                    .build();
+            case "json" -> legacyJsonSerializer();
+            default -> throw new IllegalStateException("Unknown app.cache.codec: " + codec);
+        };
+    }
+
+    private static RedisSerializer<Object> legacyJsonSerializer() {
         BasicPolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
                 // OWASP A08: restrict polymorphic cache deserialization to expected model/collection/value packages.
                 .allowIfSubType("com.shivam.store.dtos")
@@ -39,22 +90,18 @@ public class CacheConfig {
                 ObjectMapper.DefaultTyping.NON_FINAL,
                 JsonTypeInfo.As.PROPERTY);
 
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(redisMapper);
-
-        RedisCacheConfiguration baseConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(2))
-                .disableCachingNullValues()
-                .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(serializer));
-
-        Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-        cacheConfigurations.put("products", baseConfig.entryTtl(Duration.ofMinutes(5)));
-        cacheConfigurations.put("productById", baseConfig.entryTtl(Duration.ofMinutes(10)));
+        return new GenericJackson2JsonRedisSerializer(redisMapper);
+    }
 
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(baseConfig)
-                .withInitialCacheConfigurations(cacheConfigurations)
-                .build();
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis", matchIfMissing = true)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TwoTierCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoTierCacheManager.INVALIDATION_CHANNEL));
+        return container;
     }
 
     @Bean
@@ -0,0 +1,53 @@
+package com.shivam.store.config;
+
+import java.util.Arrays;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warns at startup while {@code spring.flyway.target} holds back migrations this release ships. Contract
+ * migrations (such as V13, which drops the raw guest token) are pinned out until no node of the previous
+ * release is left. Once the rolling deploy has finished, set {@code FLYWAY_TARGET=latest} and restart one
+ * node so they run. Until then every node logs this warning on every start, so the pin is not forgotten.
+ */
+@Component
+public class FlywayTargetCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(FlywayTargetCheck.class);
+
+    private final ObjectProvider<Flyway> flyway;
+
+    public FlywayTargetCheck(ObjectProvider<Flyway> flyway) {
+        this.flyway = flyway;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warnIfPinned() {
+        var migrations = flyway.getIfAvailable();
+        if (migrations == null) {
+            return;
+        }
+        var heldBack = heldBack(migrations);
+        if (!heldBack.isEmpty()) {
+            log.warn("migration_event=target_pinned target={} held_back={} action=\"set FLYWAY_TARGET=latest once every node runs this release\"",
+                    migrations.getConfiguration().getTarget(), String.join(",", heldBack));
+        }
+    }
+
+    /** Versions of the available migrations that the configured target keeps from running. */
+    static List<String> heldBack(Flyway flyway) {
+        return Arrays.stream(flyway.info().all())
+                .filter(info -> info.getState() == MigrationState.ABOVE_TARGET)
+                .map(MigrationInfo::getVersion)
+                .map(String::valueOf)
+                .toList();
+    }
+}
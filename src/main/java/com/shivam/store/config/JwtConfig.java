@@ -1,11 +1,17 @@
 package com.shivam.store.config;
 
 import io.jsonwebtoken.security.Keys;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
 
 @Configuration
 @ConfigurationProperties(prefix = "spring.jwt")
@@ -15,9 +21,39 @@ public class JwtConfig {
     private int accessExpiration;
     private int refreshExpiration;
     private int guestExpiration;
+    // HS256 signs and verifies with the shared secret. ES256 and EdDSA sign with a per-node private key that is
+    // replaced every keyRotation; only the public halves are shared, through Redis and /.well-known/jwks.json.
+    // The secret is still required then: it signs the public keys nodes publish to Redis for each other.
+    private Algorithm algorithm = Algorithm.HS256;
+    private Duration keyRotation = Duration.ofDays(1);
+
+    // Derived from secret on first use instead of on every sign and verify; reset when the secret changes.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile SecretKey secretKey;
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+        this.secretKey = null;
+    }
 
     public SecretKey getSecretKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        var key = secretKey;
+        if (key == null) {
+            key = Keys.hmacShaKeyFor(secret.getBytes());
+            secretKey = key;
+        }
+        return key;
+    }
+
+    public enum Algorithm {
+        HS256, ES256, EDDSA;
+
+        public boolean isAsymmetric() {
+            return this != HS256;
+        }
     }
 
 }
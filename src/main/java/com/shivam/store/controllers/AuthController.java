@@ -6,6 +6,7 @@ import com.shivam.store.dtos.UserDto;
 import com.shivam.store.dtos.UserRequest;
 import com.shivam.store.mappers.UserMapper;
 import com.shivam.store.repositories.UserRepository;
+import com.shivam.store.services.AuthService;
 import com.shivam.store.services.CartOwnershipService;
 import com.shivam.store.services.JwtService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,7 +23,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -32,6 +32,7 @@ public class AuthController {
     private static final Logger log = LoggerFactory.getLogger(AuthController.class);
 
     private final UserRepository userRepository;
+    private final AuthService authService;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final JwtConfig jwtConfig;
@@ -80,14 +81,10 @@ public class AuthController {
 
     @GetMapping("/me")
     public ResponseEntity<UserDto> me() {
-        var authentication = SecurityContextHolder.getContext().getAuthentication();
-        var id = (Long)authentication.getPrincipal();
-        var user = userRepository.findById(id).orElse(null);
-        if (user == null) {
-            return ResponseEntity.notFound().build();
-        }
-        var userDto = userMapper.toDto(user);
-        return ResponseEntity.ok(userDto);
+        return authService.findAuthenticatedUser()
+                .map(userMapper::toDto)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PostMapping("/refresh")
@@ -11,6 +11,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +26,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Tag(name="Carts")
 public class CartController {
+    private static final String CART_ETAG_PREFIX = "\"cart.";
+
     private final CartService cartService;
 
     @PostMapping
@@ -38,38 +41,78 @@ public class CartController {
     @Operation(summary = "Adds item to cart")
     public ResponseEntity<CartItemDto> addProduct(
             CartOwner owner,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody CartItemRequestDto prod) {
-        var cartItemDto = cartService.addProductToCurrentCart(prod.getId(), owner);
-        return ResponseEntity.ok(cartItemDto);
+        var cartItemDto = cartService.addProductToCurrentCart(prod.getId(), owner, expectedVersion(ifMatch));
+        return withVersion(ResponseEntity.ok(), cartItemDto.getCartVersion()).body(cartItemDto);
     }
 
     @GetMapping("/current")
     public ResponseEntity<CartDto> getCurrentCart(CartOwner owner) {
-        return ResponseEntity.ok(cartService.getCurrentCart(owner));
+        var cartDto = cartService.getCurrentCart(owner);
+        return withVersion(ResponseEntity.ok(), cartDto.getVersion()).body(cartDto);
+    }
+
+    @PatchMapping("/current")
+    @Operation(summary = "Applies several item operations to the cart at once")
+    public ResponseEntity<CartDto> updateCart(
+            CartOwner owner,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UpdateCartRequest request) {
+        var cartDto = cartService.updateCurrentCart(request.getOperations(), owner, expectedVersion(ifMatch));
+        return withVersion(ResponseEntity.ok(), cartDto.getVersion()).body(cartDto);
     }
 
     @PutMapping("/current/items/{productId}")
     public ResponseEntity<?> updateCartItem(
             CartOwner owner,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @PathVariable(name = "productId") Long productId,
             @Valid @RequestBody UpdateCartItemRequest updateCartItemRequest) {
 
-        return ResponseEntity.ok(
-                cartService.updateCurrentCartItem(productId, updateCartItemRequest.getQuantity(), owner));
+        var cartItemDto = cartService.updateCurrentCartItem(
+                productId, updateCartItemRequest.getQuantity(), owner, expectedVersion(ifMatch));
+        return withVersion(ResponseEntity.ok(), cartItemDto.getCartVersion()).body(cartItemDto);
     }
 
     @DeleteMapping("/current/items/{productId}")
     public ResponseEntity<?> deleteProduct(
             CartOwner owner,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @PathVariable(name = "productId") Long productId) {
-        cartService.deleteProductFromCurrentCart(productId, owner);
-        return ResponseEntity.noContent().build();
+        var version = cartService.deleteProductFromCurrentCart(productId, owner, expectedVersion(ifMatch));
+        return withVersion(ResponseEntity.status(HttpStatus.NO_CONTENT), version).build();
     }
 
     @DeleteMapping("/current/items")
-    public ResponseEntity<Void> clearCart(CartOwner owner) {
-        cartService.clearCurrentCart(owner);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> clearCart(
+            CartOwner owner,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var version = cartService.clearCurrentCart(owner, expectedVersion(ifMatch));
+        return withVersion(ResponseEntity.status(HttpStatus.NO_CONTENT), version).build();
+    }
+
+    private static ResponseEntity.BodyBuilder withVersion(ResponseEntity.BodyBuilder builder, Long version) {
+        return version != null ? builder.eTag(CART_ETAG_PREFIX + version + "\"") : builder;
+    }
+
+    // Null means no precondition. A tag that is not a cart version can never match, so it maps to -1.
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (!tag.startsWith(CART_ETAG_PREFIX) || !tag.endsWith("\"") || tag.length() <= CART_ETAG_PREFIX.length() + 1) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(CART_ETAG_PREFIX.length(), tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
     }
 
 }
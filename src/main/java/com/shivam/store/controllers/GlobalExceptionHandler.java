@@ -1,8 +1,10 @@
 package com.shivam.store.controllers;
 
 import com.shivam.store.dtos.ErrorDto;
+import com.shivam.store.exceptions.CartConflictException;
 import com.shivam.store.exceptions.CartItemNotFoundException;
 import com.shivam.store.exceptions.CartNotFoundException;
+import com.shivam.store.exceptions.CartVersionMismatchException;
 import com.shivam.store.exceptions.IncorrectUserException;
 import com.shivam.store.payments.PaymentException;
 import com.shivam.store.payments.WebhookSignatureException;
@@ -61,6 +63,18 @@ public class GlobalExceptionHandler {
                 .body(new ErrorDto("Invalid cart request"));
     }
 
+    @ExceptionHandler(CartVersionMismatchException.class)
+    public ResponseEntity<ErrorDto> handleCartVersionMismatch() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(new ErrorDto("Cart has changed"));
+    }
+
+    @ExceptionHandler(CartConflictException.class)
+    public ResponseEntity<ErrorDto> handleCartConflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorDto("Cart is being updated, please retry"));
+    }
+
     @ExceptionHandler(PaymentException.class)
     public ResponseEntity<ErrorDto> handlePaymentException() {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,29 @@
+package com.shivam.store.controllers;
+
+import com.shivam.store.services.JwtKeyRing;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    // Short enough that a verifier picks up a rotated key well before tokens signed with it reach it.
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    private final JwtKeyRing keyRing;
+
+    /** Public keys for verifying access tokens without calling back; empty while tokens are HS256. */
+    @GetMapping(value = "/.well-known/jwks.json", produces = "application/jwk-set+json")
+    public ResponseEntity<String> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(MAX_AGE).cachePublic())
+                .contentType(MediaType.parseMediaType("application/jwk-set+json"))
+                .body(keyRing.publicJwksJson());
+    }
+}
@@ -26,7 +26,7 @@ public class OrdersController {
     @GetMapping
     public ResponseEntity<List<OrderDto>> getOrders() {
         var authentication = SecurityContextHolder.getContext().getAuthentication();
-        var user = authService.getUser();
+        var user = authService.getUserReference();
         return ResponseEntity.ok(orderService.findAll(user));
     }
 
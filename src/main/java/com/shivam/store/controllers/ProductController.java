@@ -2,13 +2,24 @@ package com.shivam.store.controllers;
 
 import com.shivam.store.dtos.ProductDto;
 import com.shivam.store.dtos.RegisterProductRequest;
+import com.shivam.store.products.CatalogSnapshot;
+import com.shivam.store.products.ProductJsonWriter;
+import com.shivam.store.products.ProductRevisions;
 import com.shivam.store.services.ProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 
@@ -18,17 +29,97 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductJsonWriter productJsonWriter;
+    @Value("${app.catalog.http.max-age:PT60S}")
+    private Duration catalogMaxAge;
+    @Value("${app.catalog.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
 
+    /**
+     * Without {@code limit}/{@code after} the full catalog is returned as a JSON array (legacy contract).
+     * With either parameter the response is a keyset page: {@code {"items": [...], "nextCursor": id}}.
+     * Both honour {@code If-None-Match}/{@code If-Modified-Since} against the category revision.
+     */
     @GetMapping
-    public List<ProductDto> getProducts(@RequestParam(required = false, name = "categoryId") Byte cat){
-        return productService.getProducts(cat);
+    public void getProducts(@RequestParam(required = false, name = "categoryId") Byte cat,
+                            @RequestParam(required = false, name = "limit") Integer limit,
+                            @RequestParam(required = false, name = "after") Long after,
+                            ServletWebRequest request,
+                            HttpServletResponse response) throws IOException {
+        var revision = productService.getCatalogRevision(cat);
+        if (notModified(request, revision)) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (limit == null && after == null) {
+            var snapshot = snapshotEnabled ? productService.getCatalogSnapshot(cat, revision) : null;
+            if (snapshot != null) {
+                writeSnapshot(snapshot, request, response);
+                return;
+            }
+            productJsonWriter.writeProducts(productService.getProducts(cat, revision), response.getOutputStream());
+            return;
+        }
+        int pageSize = Math.clamp(limit != null ? limit : ProductService.DEFAULT_PAGE_SIZE, 1, ProductService.MAX_PAGE_SIZE);
+        productJsonWriter.writePage(productService.getProductPage(cat, after, pageSize), response.getOutputStream());
+    }
+
+    /** Batch lookup for screens that show many products at once, e.g. {@code GET /products?ids=3,7,12}. */
+    @GetMapping(params = "ids")
+    public List<ProductDto> getProductsByIds(@RequestParam(name = "ids") List<Long> ids) {
+        return productService.getProductsByIds(ids);
+    }
+
+    @GetMapping("/search")
+    public List<ProductDto> searchProducts(@RequestParam(name = "q") String query,
+                                           @RequestParam(required = false, name = "limit") Integer limit) {
+        int resultLimit = Math.clamp(limit != null ? limit : ProductService.DEFAULT_SEARCH_LIMIT, 1, ProductService.MAX_SEARCH_LIMIT);
+        return productService.searchProducts(query, resultLimit);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDto> getId(@PathVariable Long id) {
+    public ResponseEntity<ProductDto> getId(@PathVariable Long id, ServletWebRequest request) {
+        if (notModified(request, productService.getProductRevision(id))) {
+            return null;
+        }
         return ResponseEntity.ok(productService.getProduct(id));
     }
 
+    private static void writeSnapshot(CatalogSnapshot.Snapshot snapshot, ServletWebRequest request,
+                                      HttpServletResponse response) throws IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = snapshot.json();
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = snapshot.gzip();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // Checked before any cache lookup or serialization; on a match Spring has already written the 304.
+    private boolean notModified(ServletWebRequest request, ProductRevisions.Revision revision) {
+        if (!revision.isKnown()) {
+            return false;
+        }
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(catalogMaxAge).cachePublic().getHeaderValue());
+        return request.checkNotModified(revision.etag(), revision.value());
+    }
+
     @PostMapping
     public ResponseEntity<ProductDto> createProduct(@Valid @RequestBody RegisterProductRequest request, UriComponentsBuilder uriBuilder) {
         var productDto = productService.createProduct(request);
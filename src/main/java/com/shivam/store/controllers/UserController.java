@@ -35,7 +35,7 @@ public class UserController {
     @GetMapping
     public List<UserDto> getAllUsers(@RequestParam(required = false, defaultValue = "", name = "sort")String sort) {
         var currentUser = authService.getUser();
-        if (currentUser.getRole() != Role.ADMIN) {
+        if (currentUser.role() != Role.ADMIN) {
             throw new org.springframework.security.access.AccessDeniedException("Forbidden");
         }
         if(!Set.of("name", "email").contains(sort)){
@@ -49,7 +49,7 @@ public class UserController {
     public ResponseEntity<UserDto> getUser(@PathVariable Long id) {
         var currentUser = authService.getUser();
         // OWASP A01: users can only read their own profile unless they are admins.
-        if (currentUser.getRole() != Role.ADMIN && !currentUser.getId().equals(id)) {
+        if (currentUser.role() != Role.ADMIN && !currentUser.id().equals(id)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         return userRepository.findById(id)
@@ -75,7 +75,7 @@ public class UserController {
     @PutMapping("/{id}")
     public ResponseEntity<UserDto> updateUser(@PathVariable(name = "id") long id, @Valid @RequestBody UpdateUserRequest request) {
         var currentUser = authService.getUser();
-        if (currentUser.getRole() != Role.ADMIN && currentUser.getId() != id) {
+        if (currentUser.role() != Role.ADMIN && currentUser.id() != id) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         var user = userRepository.findById(id).orElse(null);
@@ -84,6 +84,7 @@ public class UserController {
         }
         userMapper.update(request, user);
         userRepository.save(user);
+        authService.evict(id);
 
         return ResponseEntity.ok(userMapper.toDto(user));
     }
@@ -91,7 +92,7 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id){
         var currentUser = authService.getUser();
-        if (currentUser.getRole() != Role.ADMIN && !currentUser.getId().equals(id)) {
+        if (currentUser.role() != Role.ADMIN && !currentUser.id().equals(id)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         var user = userRepository.findById(id).orElse(null);
@@ -99,6 +100,7 @@ public class UserController {
             return ResponseEntity.notFound().build();
         }
         userRepository.delete(user);
+        authService.evict(id);
         return ResponseEntity.noContent().build();
 
     }
@@ -106,7 +108,7 @@ public class UserController {
     @PostMapping("/{id}/change-password")
     public ResponseEntity<Void> changePassword(@PathVariable Long id, @Valid @RequestBody ChangePasswordRequest request) {
         var currentUser = authService.getUser();
-        if (!currentUser.getId().equals(id)) {
+        if (!currentUser.id().equals(id)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -10,6 +10,7 @@ import java.util.UUID;
 @Data
 public class CartDto {
     private UUID id;
+    private Long version;
     private List<CartItemDto> items = new ArrayList<>();
     private BigDecimal totalPrice = BigDecimal.valueOf(0);
 }
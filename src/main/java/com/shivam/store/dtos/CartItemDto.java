@@ -1,5 +1,6 @@
 package com.shivam.store.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -9,4 +10,7 @@ public class CartItemDto {
     private CartProductDto product;
     private int quantity;
     private BigDecimal totalPrice;
+    // Cart version after the write that produced this item, sent as the ETag header rather than in the body.
+    @JsonIgnore
+    private Long cartVersion;
 }
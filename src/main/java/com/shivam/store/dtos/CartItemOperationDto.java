@@ -0,0 +1,21 @@
+package com.shivam.store.dtos;
+
+import com.shivam.store.carts.CartItemChange;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CartItemOperationDto {
+    @NotNull(message = "op required")
+    private CartItemChange.Kind op;
+
+    @NotNull(message = "productId required")
+    private Long productId;
+
+    // Defaults to 1 for ADD, required for SET, ignored for REMOVE.
+    @Min(value = 1, message = "Not less than 1")
+    @Max(value = 5, message = "Not greater than 5")
+    private Integer quantity;
+}
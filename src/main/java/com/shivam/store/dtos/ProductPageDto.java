@@ -0,0 +1,19 @@
+package com.shivam.store.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ProductPageDto {
+    private List<ProductDto> items = new ArrayList<>();
+    // Id of the last item on this page; pass it back as `after` to fetch the next page. Null on the last page.
+    private Long nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.shivam.store.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class UpdateCartRequest {
+    @NotEmpty(message = "operations required")
+    @Size(max = 100, message = "Not more than 100 operations")
+    private List<@Valid @NotNull CartItemOperationDto> operations;
+}
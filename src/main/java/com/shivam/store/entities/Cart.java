@@ -1,14 +1,20 @@
 package com.shivam.store.entities;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import com.shivam.store.entities.CartItem;
 import com.shivam.store.entities.Product;
@@ -18,6 +24,8 @@ import com.shivam.store.entities.Product;
 @Entity
 @Table(name = "carts")
 public class Cart {
+    private static final Comparator<CartItem> BY_PRODUCT_ID = Comparator.comparing(item -> item.getProduct().getId());
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @Column(name = "id")
@@ -27,32 +35,100 @@ public class Cart {
     @Column(name = "date_created", insertable = false, updatable = false)
     private LocalDate dateCreated;
 
+    // Read-only from outside (see getCartItems); changes go through the methods below.
     @OneToMany(mappedBy = "cart", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, orphanRemoval = true)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private Set<CartItem> cartItems = new LinkedHashSet<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(name = "guest_token")
-    private String guestToken;
+    // SHA-256 of the guest token (see CartOwner#guestTokenHash); the token itself is never stored.
+    @Column(name = "guest_token_hash")
+    private String guestTokenHash;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    // Product id -> item, the items sorted by product id and their subtotal in cents, all derived from cartItems.
+    // addItem and removeItem keep them current; every other change to the items drops them (itemIndex = null) so
+    // they are rebuilt together on the next read. Hibernate never calls a method here: it assigns the field on
+    // load and when it wraps the set on flush, so a cartItems instance other than the indexed one drops them too.
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private CartItemIndex itemIndex;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Set<CartItem> indexedItems;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<CartItem> sortedItems;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<CartItem> sortedItemsView;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long subtotalCents;
+
 
+    /** The items in no particular order; read-only, use the methods below to change them. */
+    public Set<CartItem> getCartItems() {
+        return Collections.unmodifiableSet(cartItems);
+    }
+
+    public void setCartItems(Set<CartItem> cartItems) {
+        this.cartItems = cartItems;
+        invalidateDerivedState();
+    }
 
     public BigDecimal getTotalPrice() {
-        return cartItems.stream().map(CartItem::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return BigDecimal.valueOf(getSubtotalCents(), 2);
+    }
+
+    public long getSubtotalCents() {
+        ensureDerivedState();
+        return subtotalCents;
+    }
+
+    /** The items ordered by product id, as carts are displayed; read-only. */
+    public List<CartItem> getSortedItems() {
+        ensureDerivedState();
+        return sortedItemsView;
     }
+
     public CartItem getItem(Long productId) {
-        return cartItems.stream().filter(cartItem -> cartItem.getProduct().getId().equals(productId)).findFirst().orElse(null);
+        if (productId == null) {
+            return null;
+        }
+        ensureDerivedState();
+        return itemIndex.get(productId);
     }
 
     public CartItem addItem(Product product) {
-        var cartItem = this.getItem(product.getId());
+        ensureDerivedState();
+        var cartItem = itemIndex.get(product.getId());
         if (cartItem == null) {
             cartItem = new CartItem();
             cartItem.setProduct(product);
             cartItem.setQuantity(1);
             cartItem.setCart(this);
             cartItems.add(cartItem);
+            itemIndex.put(product.getId(), cartItem);
+            int position = Collections.binarySearch(sortedItems, cartItem, BY_PRODUCT_ID);
+            sortedItems.add(position < 0 ? -position - 1 : position, cartItem);
+            subtotalCents += cartItem.getTotalCents();
         } else {
             cartItem.setQuantity(cartItem.getQuantity() + 1);
         }
@@ -70,9 +146,51 @@ public class Cart {
             return;
         }
         cartItems.remove(item);
+        itemIndex.remove(productId);
+        sortedItems.remove(item);
+        subtotalCents -= item.getTotalCents();
         item.setCart(null);
     }
+
+    public void removeItemsIf(Predicate<CartItem> filter) {
+        if (cartItems.removeIf(filter)) {
+            invalidateDerivedState();
+        }
+    }
+
     public void clear() {
         cartItems.clear();
+        invalidateDerivedState();
+    }
+
+    /** Called by {@link CartItem#setQuantity} so the subtotal follows quantity changes made on the item. */
+    void quantityChanged(CartItem item, int oldQuantity, int newQuantity) {
+        if (itemIndex != null && indexedItems == cartItems && itemIndex.get(item.getProduct().getId()) == item) {
+            subtotalCents += item.getUnitCents() * (newQuantity - oldQuantity);
+        }
+    }
+
+    /** Called by {@link CartItem#setProduct}: the item's key and price changed, so the index and totals are stale. */
+    void productChanged() {
+        invalidateDerivedState();
+    }
+
+    @PostLoad
+    void invalidateDerivedState() {
+        itemIndex = null;
+    }
+
+    private void ensureDerivedState() {
+        if (itemIndex == null || indexedItems != cartItems) {
+            itemIndex = CartItemIndex.of(cartItems);
+            indexedItems = cartItems;
+            sortedItems = new ArrayList<>(cartItems);
+            sortedItems.sort(BY_PRODUCT_ID);
+            sortedItemsView = Collections.unmodifiableList(sortedItems);
+            subtotalCents = 0;
+            for (CartItem item : cartItems) {
+                subtotalCents += item.getTotalCents();
+            }
+        }
     }
 }
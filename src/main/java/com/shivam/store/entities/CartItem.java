@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 @Getter
 @Setter
@@ -32,8 +33,36 @@ public class CartItem {
     @Column(name = "quantity")
     private Integer quantity;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public void setProduct(Product product) {
+        this.product = product;
+        if (cart != null) {
+            cart.productChanged();
+        }
+    }
+
+    public void setQuantity(Integer quantity) {
+        var previous = this.quantity;
+        this.quantity = quantity;
+        if (cart != null && previous != null && quantity != null) {
+            cart.quantityChanged(this, previous, quantity);
+        }
+    }
+
     public BigDecimal getTotalPrice() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        return BigDecimal.valueOf(getTotalCents(), 2);
+    }
+
+    public long getTotalCents() {
+        return getUnitCents() * quantity;
+    }
+
+    long getUnitCents() {
+        // Prices are NUMERIC(10, 2), so this is exact for anything read from the database.
+        return product.getPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
     }
 
 }
\ No newline at end of file
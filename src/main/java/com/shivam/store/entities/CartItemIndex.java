@@ -0,0 +1,122 @@
+package com.shivam.store.entities;
+
+import java.util.Collection;
+
+/**
+ * Open-addressing map from product id to the cart's item for that product. Keys stay primitive longs, so a
+ * lookup neither boxes the id nor walks the item set. Linear probing with backward-shift deletion keeps the
+ * table free of tombstones. Not thread-safe, like the entity that owns it.
+ */
+final class CartItemIndex {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private CartItem[] values;
+    private int size;
+
+    private CartItemIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /** Indexes the items by product id; if two items share a product the first one wins, like a linear scan. */
+    static CartItemIndex of(Collection<CartItem> items) {
+        var index = new CartItemIndex(items.size());
+        for (CartItem item : items) {
+            long productId = item.getProduct().getId();
+            if (index.get(productId) == null) {
+                index.put(productId, item);
+            }
+        }
+        return index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    CartItem get(long productId) {
+        int mask = values.length - 1;
+        for (int i = slot(productId, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == productId) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(long productId, CartItem item) {
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+        }
+        int mask = values.length - 1;
+        int i = slot(productId, mask);
+        while (values[i] != null) {
+            if (keys[i] == productId) {
+                values[i] = item;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = productId;
+        values[i] = item;
+        size++;
+    }
+
+    void remove(long productId) {
+        int mask = values.length - 1;
+        int i = slot(productId, mask);
+        while (values[i] != null && keys[i] != productId) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            return;
+        }
+        values[i] = null;
+        size--;
+        // Shift back later entries of the run whose home slot is not between the hole and themselves, so
+        // every remaining key is still reachable from its home slot without tombstones.
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean reachable = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!reachable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        CartItem[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new CartItem[capacity];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        // Power of two at least twice the expected size, so the table starts at most half full.
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(long productId, int mask) {
+        // Fibonacci hashing spreads sequential ids across the table instead of filling one run.
+        long hash = productId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -76,7 +76,7 @@ public class Order {
 
     }
 
-    public boolean isPlacedBy(User user) {
-        return this.customer.equals(user);
+    public boolean isPlacedBy(Long userId) {
+        return this.customer.getId().equals(userId);
     }
 }
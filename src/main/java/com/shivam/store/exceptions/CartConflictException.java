@@ -0,0 +1,4 @@
+package com.shivam.store.exceptions;
+
+public class CartConflictException extends RuntimeException {
+}
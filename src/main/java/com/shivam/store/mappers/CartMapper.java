@@ -1,5 +1,6 @@
 package com.shivam.store.mappers;
 
+import com.shivam.store.carts.CartLine;
 import com.shivam.store.dtos.CartDto;
 import com.shivam.store.dtos.CartItemDto;
 import com.shivam.store.entities.Cart;
@@ -9,10 +10,18 @@ import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring", uses = ProductMapper.class)
 public interface CartMapper {
+    @Mapping(target = "sortedItems", ignore = true)
     Cart toEntity(CartDto cartDto);
-    @Mapping(target = "items", expression = "java(cart.getCartItems().stream()\n                .sorted(java.util.Comparator.comparing(ci -> ci.getProduct().getId()))\n                .map(this::toCartItemDto)\n                .collect(java.util.stream.Collectors.toList()))")
+    @Mapping(target = "items", source = "sortedItems")
     @Mapping(target = "totalPrice", expression="java(cart.getTotalPrice())")
     CartDto toDto(Cart cart);
     @Mapping(target = "totalPrice", expression = "java(cart.getTotalPrice())")
+    @Mapping(target = "cartVersion", ignore = true)
     CartItemDto toCartItemDto(CartItem cart);
+    @Mapping(target = "product.id", source = "productId")
+    @Mapping(target = "product.name", source = "name")
+    @Mapping(target = "product.price", source = "price")
+    @Mapping(target = "totalPrice", expression = "java(line.price().multiply(java.math.BigDecimal.valueOf(line.quantity())))")
+    @Mapping(target = "cartVersion", ignore = true)
+    CartItemDto toCartItemDto(CartLine line);
 }
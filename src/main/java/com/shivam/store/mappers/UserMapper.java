@@ -4,6 +4,7 @@ import com.shivam.store.dtos.RegisterUserRequest;
 import com.shivam.store.dtos.UpdateUserRequest;
 import com.shivam.store.dtos.UserDto;
 import com.shivam.store.entities.User;
+import com.shivam.store.services.AuthenticatedUser;
 import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -16,6 +17,9 @@ public interface UserMapper {
     @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
     UserDto toDto(User user);
 
+    @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
+    UserDto toDto(AuthenticatedUser user);
+
     User toEntity(RegisterUserRequest request);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
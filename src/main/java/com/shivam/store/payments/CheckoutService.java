@@ -21,7 +21,7 @@ public class CheckoutService {
 
     @Transactional
     public OrderIdDto createOrder() {
-        var user = authService.getUser();
+        var user = authService.getUserReference();
         var cart = cartService.getCurrentCartEntity(CartOwner.authenticated(user));
         if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
             throw new CartNotFoundException();
@@ -0,0 +1,129 @@
+package com.shivam.store.products;
+
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.ProductRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fully encoded {@code GET /products} bodies per category, plain and gzipped, ready to be copied to the
+ * response. Each snapshot is tagged with the category revision it was built from. The first read after a
+ * write sees a newer revision, rebuilds the snapshot from the database and swaps it in; concurrent readers of
+ * the same category wait for that one rebuild instead of starting their own. The rebuild runs outside the map,
+ * so it never holds a lock that readers of other categories need.
+ *
+ * <p>gzip is the only pre-compressed variant. The JDK has no brotli encoder and none is on the classpath, so a
+ * client that accepts {@code br} but not gzip gets the plain body.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogSnapshot {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ProductJsonWriter productJsonWriter;
+    private final ProductRevisions productRevisions;
+
+    private final ConcurrentMap<String, Entry> snapshots = new ConcurrentHashMap<>();
+
+    /** Returns the current snapshot, or null when the catalog revision is unavailable. */
+    public Snapshot get(Byte categoryId) {
+        return get(categoryId, productRevisions.category(categoryId));
+    }
+
+    /** As {@link #get(Byte)}, against a revision the caller has already read for its validators. */
+    public Snapshot get(Byte categoryId, ProductRevisions.Revision revision) {
+        if (!revision.isKnown()) {
+            return null;
+        }
+        String key = Objects.toString(categoryId, "all");
+        while (true) {
+            Entry current = snapshots.get(key);
+            if (current != null && current.revision() >= revision.value()) {
+                return current.await();
+            }
+            var building = new Entry(revision.value(), new CompletableFuture<>());
+            boolean claimed = current == null
+                    ? snapshots.putIfAbsent(key, building) == null
+                    : snapshots.replace(key, current, building);
+            if (!claimed) {
+                // Another reader swapped in a build first; look at what it is building.
+                continue;
+            }
+            try {
+                var snapshot = build(categoryId, revision.value());
+                building.snapshot().complete(snapshot);
+                return snapshot;
+            } catch (RuntimeException ex) {
+                snapshots.remove(key, building);
+                building.snapshot().completeExceptionally(ex);
+                throw ex;
+            }
+        }
+    }
+
+    // The revision is read before the rows, so a write racing the build only makes the snapshot look older.
+    private Snapshot build(Byte categoryId, long revision) {
+        var products = (categoryId != null
+                ? productRepository.findByCategory_IdOrderByIdAsc(categoryId)
+                : productRepository.findAllByOrderByIdAsc()).stream()
+                .map(productMapper::toDto)
+                .toList();
+        return encode(products, revision);
+    }
+
+    /**
+     * Installs a snapshot of {@code products}, which must have been read after {@code revision} was. The
+     * catalog revision is a safe tag for any category, since it is never older than a category's own. An
+     * entry already at that revision or newer is kept.
+     */
+    public void prime(Byte categoryId, long revision, List<ProductDto> products) {
+        var primed = new Entry(revision, CompletableFuture.completedFuture(encode(products, revision)));
+        snapshots.merge(Objects.toString(categoryId, "all"), primed,
+                (existing, candidate) -> existing.revision() >= candidate.revision() ? existing : candidate);
+    }
+
+    private Snapshot encode(List<ProductDto> products, long revision) {
+        try {
+            var json = new ByteArrayOutputStream();
+            productJsonWriter.writeProducts(products, json);
+            var gzip = new ByteArrayOutputStream();
+            try (var out = new GZIPOutputStream(gzip)) {
+                json.writeTo(out);
+            }
+            return new Snapshot(revision, json.toByteArray(), gzip.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // A snapshot, or the one build of it that readers of the same revision wait for.
+    private record Entry(long revision, CompletableFuture<Snapshot> snapshot) {
+
+        Snapshot await() {
+            try {
+                return snapshot.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+    }
+
+    /** Immutable once built: neither array is ever written after construction. */
+    public record Snapshot(long revision, byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.shivam.store.products;
+
+import com.shivam.store.cache.BatchCaches;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.OrderItemRepository;
+import com.shivam.store.repositories.ProductRepository;
+import com.shivam.store.services.ProductService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preloads the product caches at startup. Runners complete before Spring Boot marks the application as
+ * accepting traffic, so the readiness probe ({@code /actuator/health/readiness}) stays down until warming
+ * is done and the load balancer never routes the first wave of requests to cold caches.
+ *
+ * <p>The whole catalog is read once; category lists are derived from it in memory and written together, and
+ * the best-selling products (topped up in catalog order) are written to {@code productById} in one batch.
+ * The same lists are encoded into {@link CatalogSnapshot}s, so the first unpaged {@code GET /products} for
+ * the catalog or a category is served without touching the database. A failed warm-up is logged and startup continues with whatever was cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheWarmer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCacheWarmer.class);
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductMapper productMapper;
+    private final ProductService productService;
+    private final CacheManager cacheManager;
+    private final ProductRevisions productRevisions;
+    private final CatalogSnapshot catalogSnapshot;
+
+    @Value("${app.catalog.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+    @Value("${app.cache.warmup.enabled:true}")
+    private boolean enabled;
+    @Value("${app.cache.warmup.top-products:500}")
+    private int topProducts;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            int products = warm();
+            log.info("cache_event=warmup_complete products={} elapsedMs={}",
+                    products, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.warn("cache_event=warmup_failed reason={}", ex.getClass().getSimpleName());
+        }
+    }
+
+    int warm() {
+        // Read before the rows, so a write racing the warm-up only makes the snapshots look older.
+        var revision = productRevisions.category(null);
+        List<ProductDto> catalog = productRepository.findAllByOrderByIdAsc().stream()
+                .map(productMapper::toDto)
+                .toList();
+
+        // Same list shapes as ProductService#getProducts.
+        Map<Byte, List<ProductDto>> lists = new LinkedHashMap<>();
+        lists.put(null, new ArrayList<>(catalog));
+        for (ProductDto product : catalog) {
+            if (product.getCategoryId() != null) {
+                lists.computeIfAbsent(product.getCategoryId(), ignored -> new ArrayList<>()).add(product);
+            }
+        }
+        var productsCache = cacheManager.getCache(ProductService.PRODUCTS_CACHE);
+        if (productsCache != null && revision.isKnown()) {
+            putLists(productsCache, lists, revision);
+        }
+
+        if (snapshotEnabled && revision.isKnown()) {
+            lists.forEach((categoryId, products) -> catalogSnapshot.prime(categoryId, revision.value(), products));
+        }
+
+        var productByIdCache = cacheManager.getCache(ProductService.PRODUCT_BY_ID_CACHE);
+        if (productByIdCache != null) {
+            BatchCaches.putAll(productByIdCache, topProducts(catalog));
+        }
+
+        // First pages go through the service so their revision-scoped keys are computed the usual way.
+        productService.getProductPage(null, null, ProductService.DEFAULT_PAGE_SIZE);
+        return catalog.size();
+    }
+
+    // Keyed like ProductService#getProducts, by each list's own revision. Those are only known after the rows are
+    // read, so the lists are written only if no write moved the catalog revision meanwhile; otherwise the first
+    // readers load them.
+    private void putLists(Cache productsCache, Map<Byte, List<ProductDto>> lists, ProductRevisions.Revision before) {
+        Map<String, List<ProductDto>> entries = new LinkedHashMap<>();
+        lists.forEach((categoryId, products) -> entries.put(
+                Objects.toString(categoryId, "all") + ":" + productRevisions.categoryValue(categoryId), products));
+        if (!before.equals(productRevisions.category(null))) {
+            log.info("cache_event=warmup_lists_skipped reason=catalog_changed");
+            return;
+        }
+        BatchCaches.putAll(productsCache, entries);
+    }
+
+    private Map<Long, ProductDto> topProducts(List<ProductDto> catalog) {
+        Map<Long, ProductDto> byId = new HashMap<>();
+        catalog.forEach(product -> byId.put(product.getId(), product));
+
+        var ids = new LinkedHashSet<Long>();
+        if (topProducts > 0) {
+            ids.addAll(orderItemRepository.findTopSellingProductIds(Limit.of(topProducts)));
+        }
+        for (int i = 0; i < catalog.size() && ids.size() < topProducts; i++) {
+            ids.add(catalog.get(i).getId());
+        }
+
+        Map<Long, ProductDto> top = new LinkedHashMap<>();
+        ids.stream().map(byId::get).filter(Objects::nonNull).forEach(product -> top.put(product.getId(), product));
+        return top;
+    }
+}
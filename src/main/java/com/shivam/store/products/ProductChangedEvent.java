@@ -0,0 +1,26 @@
+package com.shivam.store.products;
+
+import com.shivam.store.dtos.ProductDto;
+
+/**
+ * Published by {@code ProductService} whenever a product is created, updated or deleted.
+ * {@code product} is null for deletions; {@code previousCategoryId} is null for creations.
+ */
+public record ProductChangedEvent(long productId, Byte previousCategoryId, ProductDto product) {
+
+    public static ProductChangedEvent created(ProductDto product) {
+        return new ProductChangedEvent(product.getId(), null, product);
+    }
+
+    public static ProductChangedEvent updated(Byte previousCategoryId, ProductDto product) {
+        return new ProductChangedEvent(product.getId(), previousCategoryId, product);
+    }
+
+    public static ProductChangedEvent deleted(long productId, Byte previousCategoryId) {
+        return new ProductChangedEvent(productId, previousCategoryId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
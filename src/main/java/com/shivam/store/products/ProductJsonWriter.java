@@ -0,0 +1,56 @@
+package com.shivam.store.products;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.dtos.ProductPageDto;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes product listings straight to the response stream one element at a time, so the encoded
+ * body is never buffered as a whole in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductJsonWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public void writeProducts(List<ProductDto> products, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            writeItems(generator, products);
+        }
+    }
+
+    public void writePage(ProductPageDto page, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName("items");
+            writeItems(generator, page.getItems());
+            if (page.getNextCursor() != null) {
+                generator.writeNumberField("nextCursor", page.getNextCursor());
+            } else {
+                generator.writeNullField("nextCursor");
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        // The servlet container owns the response stream; only flush it when the generator closes.
+        return objectMapper.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private void writeItems(JsonGenerator generator, List<ProductDto> products) throws IOException {
+        generator.writeStartArray();
+        for (ProductDto product : products) {
+            generator.writePOJO(product);
+        }
+        generator.writeEndArray();
+    }
+}
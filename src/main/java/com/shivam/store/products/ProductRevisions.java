@@ -0,0 +1,191 @@
+package com.shivam.store.products;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Monotonic revision counters for the catalog, per product and per category, used as HTTP validators and
+ * as part of cache keys. A revision is an epoch-millisecond timestamp that only moves forward, so it doubles
+ * as a Last-Modified value.
+ *
+ * <p>Every write bumps the catalog-wide revision together with the touched product and categories, all to
+ * the same new value. Products and categories that were never written fall back to the catalog revision, so
+ * no counter is created for ids that are merely read. Counters live in a Redis hash shared by all nodes when
+ * Redis is the cache, otherwise in memory.
+ *
+ * <p>Revisions are bumped twice per write: before commit, so a write whose revision cannot move fails instead
+ * of leaving validators that still match, and after commit, so nothing built from the old rows in between
+ * keeps the final revision. Reads never write, except to seed the catalog revision the first time.
+ */
+@Component
+public class ProductRevisions {
+
+    static final String REVISIONS_KEY = "product:revisions";
+    static final String CATALOG_FIELD = "all";
+
+    private static final Logger log = LoggerFactory.getLogger(ProductRevisions.class);
+
+    // next = max(now, catalog + 1); every field passed in is set to it, so it is newer than any field in the hash.
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')
+            local next = math.max(now, current + 1)
+            for i = 1, #ARGV do
+              redis.call('HSET', KEYS[1], ARGV[i], next)
+            end
+            return next
+            """, Long.class);
+
+    // Only run when a read finds no catalog revision: initializes it unless another node got there first.
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            redis.call('HSETNX', KEYS[1], 'all', tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000))
+            return tonumber(redis.call('HGET', KEYS[1], 'all'))
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, Long> localRevisions = new ConcurrentHashMap<>();
+    // Fields whose after-commit bump failed; retried until it succeeds.
+    private final Set<String> pendingFields = ConcurrentHashMap.newKeySet();
+
+    public ProductRevisions(ObjectProvider<StringRedisTemplate> redisTemplate,
+                            @Value("${spring.cache.type:redis}") String cacheType) {
+        this.redisTemplate = "redis".equals(cacheType) ? redisTemplate.getIfAvailable() : null;
+    }
+
+    /** Validator for one product; changes whenever that product is written. */
+    public Revision product(long productId) {
+        return revision("p:" + productId, "p" + productId);
+    }
+
+    /** Validator for a category listing, or for the whole catalog when {@code categoryId} is null. */
+    public Revision category(Byte categoryId) {
+        return categoryId != null ? revision("c:" + categoryId, "c" + categoryId) : revision(CATALOG_FIELD, "all");
+    }
+
+    /** Cache-key component for listings: changes whenever a product in the category is written. */
+    public long categoryValue(Byte categoryId) {
+        return category(categoryId).value();
+    }
+
+    /**
+     * Moves the revisions before the write commits. If they cannot be moved the write is rolled back, since
+     * otherwise validators taken before it would keep matching and clients would be told their stale copy is
+     * current until the next write.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanging(ProductChangedEvent event) {
+        bump(fields(event));
+    }
+
+    // Moved again once the rows are visible: a read between the two bumps may have built a response from the
+    // old rows and tagged it with the first revision.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        var fields = fields(event);
+        try {
+            bump(fields);
+        } catch (RuntimeException ex) {
+            log.warn("catalog_event=revision_bump_failed reason={}", ex.getClass().getSimpleName());
+            pendingFields.addAll(fields);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.revision-retry-interval:PT5S}")
+    public void retryPendingBumps() {
+        if (pendingFields.isEmpty()) {
+            return;
+        }
+        Set<String> fields = new LinkedHashSet<>(pendingFields);
+        fields.add(CATALOG_FIELD);
+        try {
+            bump(fields);
+            pendingFields.removeAll(fields);
+        } catch (RuntimeException ex) {
+            log.warn("catalog_event=revision_bump_retry_failed reason={}", ex.getClass().getSimpleName());
+        }
+    }
+
+    private static Set<String> fields(ProductChangedEvent event) {
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add(CATALOG_FIELD);
+        fields.add("p:" + event.productId());
+        if (event.previousCategoryId() != null) {
+            fields.add("c:" + event.previousCategoryId());
+        }
+        if (!event.isDeleted() && event.product().getCategoryId() != null) {
+            fields.add("c:" + event.product().getCategoryId());
+        }
+        return fields;
+    }
+
+    /** Throws if the shared revisions cannot be moved. */
+    void bump(Set<String> fields) {
+        if (redisTemplate != null) {
+            redisTemplate.execute(BUMP_SCRIPT, List.of(REVISIONS_KEY), new ArrayList<>(fields).toArray());
+            return;
+        }
+        synchronized (localRevisions) {
+            long current = localRevisions.getOrDefault(CATALOG_FIELD, 0L);
+            long next = Math.max(System.currentTimeMillis(), current + 1);
+            fields.forEach(field -> localRevisions.put(field, next));
+        }
+    }
+
+    private Revision revision(String field, String scope) {
+        if (redisTemplate == null) {
+            Long own = localRevisions.get(field);
+            long catalog = localRevisions.computeIfAbsent(CATALOG_FIELD, ignored -> System.currentTimeMillis());
+            return own != null ? new Revision(scope, own) : new Revision("all", catalog);
+        }
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(REVISIONS_KEY, List.of(field, CATALOG_FIELD));
+            Object own = values.get(0);
+            if (own != null) {
+                return new Revision(scope, Long.parseLong(own.toString()));
+            }
+            Object catalog = values.get(1);
+            if (catalog != null) {
+                return new Revision("all", Long.parseLong(catalog.toString()));
+            }
+            Long seeded = redisTemplate.execute(SEED_SCRIPT, List.of(REVISIONS_KEY));
+            return seeded != null ? new Revision("all", seeded) : Revision.UNKNOWN;
+        } catch (RuntimeException ex) {
+            log.warn("catalog_event=revision_read_failed reason={}", ex.getClass().getSimpleName());
+            return Revision.UNKNOWN;
+        }
+    }
+
+    /**
+     * A revision and the counter it came from. The scope is part of the ETag so a product that falls back to
+     * the catalog revision can never collide with its own later revision.
+     */
+    public record Revision(String scope, long value) {
+
+        static final Revision UNKNOWN = new Revision("unknown", 0L);
+
+        public boolean isKnown() {
+            return value > 0;
+        }
+
+        public String etag() {
+            return "\"" + scope + "." + value + "\"";
+        }
+    }
+}
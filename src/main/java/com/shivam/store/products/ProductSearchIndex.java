@@ -0,0 +1,214 @@
+package com.shivam.store.products;
+
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.ProductRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory inverted index over product names and descriptions. Built from the products table at startup,
+ * kept current from {@link ProductChangedEvent}s on this node and periodically rebuilt so writes made on
+ * other nodes are picked up. Queries never touch the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Name matches count more than description matches.
+    private static final int NAME_WEIGHT = 3;
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+    // Events seen while a rebuild reads the table, replayed onto the new index before it replaces the old one.
+    // Null when no rebuild is running. Guarded by the write lock.
+    private List<ProductChangedEvent> changedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval:PT10M}", initialDelayString = "${app.search.rebuild-interval:PT10M}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        var rebuilt = new Index();
+        try {
+            productRepository.findAll().forEach(product -> rebuilt.add(productMapper.toDto(product)));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // An event may describe a write the read already saw; applying it again is harmless.
+            changedDuringRebuild.forEach(rebuilt::apply);
+            changedDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built with {} products and {} terms", rebuilt.documents.size(), rebuilt.postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.apply(event);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns products matching every query term, ranked by tf-idf. Each term also matches indexed terms
+     * it is a prefix of ("head" finds "headphones"), with a lower weight than exact matches.
+     */
+    public List<ProductDto> search(String query, int limit) {
+        var terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return index.search(new LinkedHashSet<>(terms), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        var tokens = new ArrayList<String>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Document(ProductDto product, Map<String, Integer> termFrequencies, int length) {
+    }
+
+    private static final class Index {
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, Document> documents = new HashMap<>();
+
+        void apply(ProductChangedEvent event) {
+            remove(event.productId());
+            if (!event.isDeleted()) {
+                add(event.product());
+            }
+        }
+
+        void add(ProductDto product) {
+            var frequencies = new HashMap<String, Integer>();
+            tokenize(product.getName()).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+            tokenize(product.getDescription()).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+            documents.put(product.getId(), new Document(product, frequencies, Math.max(length, 1)));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(product.getId(), frequency));
+        }
+
+        void remove(long productId) {
+            var document = documents.remove(productId);
+            if (document == null) {
+                return;
+            }
+            for (String term : document.termFrequencies().keySet()) {
+                var posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(productId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        List<ProductDto> search(Set<String> queryTerms, int limit) {
+            Map<Long, Double> scores = null;
+            for (String queryTerm : queryTerms) {
+                var termScores = scoreTerm(queryTerm);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (var entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(entry -> documents.get(entry.getKey()).product())
+                    .toList();
+        }
+
+        private Map<Long, Double> scoreTerm(String queryTerm) {
+            var scores = new HashMap<Long, Double>();
+            int documentCount = documents.size();
+            // Every indexed term starting with queryTerm sorts between queryTerm and queryTerm + U+FFFF.
+            var matches = postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true);
+            for (var match : matches.entrySet()) {
+                var posting = match.getValue();
+                double idf = Math.log(1.0 + (double) documentCount / posting.size());
+                double weight = match.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_WEIGHT;
+                for (var entry : posting.entrySet()) {
+                    double tf = (double) entry.getValue() / documents.get(entry.getKey()).length();
+                    scores.merge(entry.getKey(), tf * idf * weight, Double::sum);
+                }
+            }
+            return scores;
+        }
+    }
+}
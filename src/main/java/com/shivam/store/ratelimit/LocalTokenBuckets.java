@@ -0,0 +1,98 @@
+package com.shivam.store.ratelimit;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-node token buckets for when Redis is unavailable. A bucket is dropped once it would be full again, since
+ * a missing bucket counts as full. Drops are driven by a timing wheel of one-second slots: each bucket is filed
+ * under the slot of the tick it becomes full, and a check only sweeps the slots for the ticks that passed since
+ * the previous one, so the cost stays amortized O(1) per check however many keys an attack spreads over.
+ * Buckets further out than one turn of the wheel stay filed and are looked at again on the next turn.
+ */
+final class LocalTokenBuckets {
+
+    private static final int SLOTS = 64;
+    private static final int MASK = SLOTS - 1;
+    private static final long TICK_MILLIS = 1_000;
+
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private final Set<String>[] wheel;
+    private long sweptTick;
+
+    @SuppressWarnings("unchecked")
+    LocalTokenBuckets(LongSupplier clock) {
+        this.clock = clock;
+        this.wheel = new Set[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new LinkedHashSet<>();
+        }
+        this.sweptTick = clock.getAsLong() / TICK_MILLIS;
+    }
+
+    // Only used while Redis is down, so one lock around the map and the wheel is simpler than finer locking.
+    synchronized boolean tryAcquire(String key, int capacity, long refillPeriodMillis) {
+        long now = clock.getAsLong();
+        advanceTo(now / TICK_MILLIS);
+
+        var bucket = buckets.computeIfAbsent(key, ignored -> new Bucket(capacity, now));
+        double refillPerMilli = (double) capacity / refillPeriodMillis;
+        bucket.tokens = Math.min(capacity, bucket.tokens + Math.max(0, now - bucket.updatedAt) * refillPerMilli);
+        bucket.updatedAt = now;
+        boolean allowed = bucket.tokens >= 1;
+        if (allowed) {
+            bucket.tokens -= 1;
+        }
+
+        long fullAt = now + (long) Math.ceil((capacity - bucket.tokens) / refillPerMilli);
+        long fullTick = fullAt / TICK_MILLIS + 1;
+        if (fullTick != bucket.fullTick) {
+            // The entry in the old slot goes stale and is discarded when that slot is swept.
+            bucket.fullTick = fullTick;
+            wheel[(int) (fullTick & MASK)].add(key);
+        }
+        return allowed;
+    }
+
+    synchronized int size() {
+        return buckets.size();
+    }
+
+    private void advanceTo(long tick) {
+        // After a quiet spell longer than a turn, sweeping every slot once covers every tick that passed.
+        for (long t = Math.max(sweptTick + 1, tick - MASK); t <= tick; t++) {
+            sweep(t, tick);
+        }
+        sweptTick = Math.max(sweptTick, tick);
+    }
+
+    private void sweep(long slotTick, long now) {
+        var slot = wheel[(int) (slotTick & MASK)];
+        var keys = slot.iterator();
+        while (keys.hasNext()) {
+            var key = keys.next();
+            var bucket = buckets.get(key);
+            if (bucket == null || (bucket.fullTick & MASK) != (slotTick & MASK)) {
+                keys.remove();
+            } else if (bucket.fullTick <= now) {
+                buckets.remove(key);
+                keys.remove();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+        private long fullTick;
+
+        private Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.shivam.store.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets shared by all nodes through Redis: a bucket holds up to {@code capacity} tokens, refills at
+ * {@code capacity} per {@code refillPeriod}, and each request takes one. Unlike a fixed window this never lets
+ * twice the limit through across a window edge. Each check is one script call that reads, refills, takes and
+ * stores atomically, using the Redis clock so nodes with skewed clocks agree. When Redis is missing or down,
+ * checks fall back to per-node buckets, so callers stay available.
+ *
+ * <p>Keys are namespaced by the caller, e.g. {@code login:<ip>}.
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    static final String KEY_PREFIX = "ratelimit:";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    // Returns 1 if a token was taken. The hash expires once the bucket would be full again, at which point a
+    // missing bucket and a full one are the same thing.
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local capacity = tonumber(ARGV[1])
+            local period = tonumber(ARGV[2])
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * capacity / period)
+            local allowed = 0
+            if tokens >= 1 then
+              tokens = tokens - 1
+              allowed = 1
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.max(1, math.ceil((capacity - tokens) * period / capacity)))
+            return allowed
+            """, Long.class);
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    private final LocalTokenBuckets localBuckets = new LocalTokenBuckets(System::currentTimeMillis);
+
+    public TokenBucketRateLimiter(ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    /** Takes a token from {@code key}'s bucket; false means the caller is over the limit. */
+    public boolean tryAcquire(String key, Limit limit) {
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate != null) {
+            try {
+                Long allowed = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(KEY_PREFIX + key),
+                        Integer.toString(limit.capacity()), Long.toString(limit.refillPeriod().toMillis()));
+                return allowed != null && allowed == 1L;
+            } catch (RuntimeException ex) {
+                log.warn("security_event=rate_limit_redis_fallback reason=redis_unavailable");
+            }
+        }
+        return localBuckets.tryAcquire(key, limit.capacity(), limit.refillPeriod().toMillis());
+    }
+
+    /** Up to {@code capacity} requests at once, refilling to that many over {@code refillPeriod}. */
+    public record Limit(int capacity, Duration refillPeriod) {
+
+        public Limit {
+            if (capacity < 1 || refillPeriod.toMillis() < 1) {
+                throw new IllegalArgumentException("capacity and refill period must be positive");
+            }
+        }
+    }
+}
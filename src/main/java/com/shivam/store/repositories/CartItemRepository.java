@@ -1,7 +1,17 @@
 package com.shivam.store.repositories;
 
 import com.shivam.store.entities.CartItem;
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
-}
\ No newline at end of file
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") UUID cartId);
+}
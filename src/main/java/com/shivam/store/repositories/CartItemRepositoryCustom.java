@@ -0,0 +1,36 @@
+package com.shivam.store.repositories;
+
+import com.shivam.store.carts.CartItemChange;
+import com.shivam.store.carts.CartLine;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cart line writes that run as one SQL statement each, without loading the cart, its items or its products.
+ * The unique constraint on {@code (cart_id, product_id)} arbitrates concurrent writers, so two adds of the
+ * same product both land instead of one failing on a duplicate insert.
+ */
+public interface CartItemRepositoryCustom {
+
+    /** Inserts the line with quantity 1 or adds 1 to it; empty when the product does not exist. */
+    Optional<CartLine> incrementQuantity(UUID cartId, Long productId);
+
+    /** Sets the quantity of an existing line; empty when the cart has no line for the product. */
+    Optional<CartLine> setQuantity(UUID cartId, Long productId, int quantity);
+
+    /** Takes 1 off the line, deleting it when it would reach 0. Does nothing when there is no such line. */
+    void decrementQuantity(UUID cartId, Long productId);
+
+    /**
+     * Applies coalesced changes, at most one per product, as one JDBC batch per kind of change. Lines that do
+     * not exist yet are created by both ADD and SET. The products must exist.
+     */
+    void applyChanges(UUID cartId, Collection<CartItemChange> changes);
+
+    /**
+     * Moves every line of the source cart into the target cart in one statement, adding quantities where the
+     * target already has the product. The source lines are left in place for the caller to delete.
+     */
+    int mergeInto(UUID targetCartId, UUID sourceCartId);
+}
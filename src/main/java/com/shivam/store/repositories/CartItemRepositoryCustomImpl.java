@@ -0,0 +1,161 @@
+package com.shivam.store.repositories;
+
+import com.shivam.store.carts.CartItemChange;
+import com.shivam.store.carts.CartLine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Postgres gets {@code INSERT ... ON CONFLICT DO UPDATE} and {@code UPDATE} wrapped in a CTE whose
+ * {@code RETURNING} row is joined to the product. H2, used for tests and the local profile, has neither
+ * {@code ON CONFLICT DO UPDATE} nor data-modifying CTEs, so it runs the equivalent {@code MERGE} or
+ * {@code UPDATE} inside {@code FINAL TABLE (...)}, which is still one statement.
+ */
+class CartItemRepositoryCustomImpl implements CartItemRepositoryCustom {
+
+    // Only existing products are selected as the source row, so a missing product inserts nothing instead of
+    // tripping the foreign key, which would abort an enclosing Postgres transaction.
+    private static final String INCREMENT_POSTGRES = """
+            WITH line AS (
+                INSERT INTO cart_items (cart_id, product_id, quantity)
+                SELECT ?, p.id, 1 FROM products p WHERE p.id = ?
+                ON CONFLICT (cart_id, product_id)
+                    DO UPDATE SET quantity = cart_items.quantity + 1, version = cart_items.version + 1
+                RETURNING product_id, quantity)
+            SELECT p.id, p.name, p.price, line.quantity FROM line JOIN products p ON p.id = line.product_id
+            """;
+
+    private static final String INCREMENT_H2 = """
+            SELECT p.id, p.name, p.price, line.quantity FROM FINAL TABLE (
+                MERGE INTO cart_items t
+                USING (SELECT CAST(? AS UUID) AS cart_id, id AS product_id FROM products WHERE id = ?) s
+                ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+                WHEN MATCHED THEN UPDATE SET quantity = t.quantity + 1, version = t.version + 1
+                WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity) VALUES (s.cart_id, s.product_id, 1)
+            ) line JOIN products p ON p.id = line.product_id
+            """;
+
+    private static final String SET_POSTGRES = """
+            WITH line AS (
+                UPDATE cart_items SET quantity = ?, version = version + 1 WHERE cart_id = ? AND product_id = ?
+                RETURNING product_id, quantity)
+            SELECT p.id, p.name, p.price, line.quantity FROM line JOIN products p ON p.id = line.product_id
+            """;
+
+    private static final String SET_H2 = """
+            SELECT p.id, p.name, p.price, line.quantity FROM FINAL TABLE (
+                UPDATE cart_items SET quantity = ?, version = version + 1 WHERE cart_id = ? AND product_id = ?
+            ) line JOIN products p ON p.id = line.product_id
+            """;
+
+    // MERGE with a conditional DELETE is understood by both H2 and Postgres 15+.
+    private static final String DECREMENT = """
+            MERGE INTO cart_items t
+            USING (SELECT CAST(? AS UUID) AS cart_id, CAST(? AS BIGINT) AS product_id) s
+            ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+            WHEN MATCHED AND t.quantity > 1 THEN UPDATE SET quantity = t.quantity - 1, version = t.version + 1
+            WHEN MATCHED THEN DELETE
+            """;
+
+    private static final String ADD_POSTGRES = """
+            INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)
+            ON CONFLICT (cart_id, product_id)
+                DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity, version = cart_items.version + 1
+            """;
+
+    private static final String SET_OR_INSERT_POSTGRES = """
+            INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)
+            ON CONFLICT (cart_id, product_id)
+                DO UPDATE SET quantity = EXCLUDED.quantity, version = cart_items.version + 1
+            """;
+
+    private static final String ADD_H2 = """
+            MERGE INTO cart_items t
+            USING (SELECT CAST(? AS UUID) AS cart_id, CAST(? AS BIGINT) AS product_id, CAST(? AS INT) AS quantity) s
+            ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity, version = t.version + 1
+            WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity) VALUES (s.cart_id, s.product_id, s.quantity)
+            """;
+
+    private static final String SET_OR_INSERT_H2 = """
+            MERGE INTO cart_items t
+            USING (SELECT CAST(? AS UUID) AS cart_id, CAST(? AS BIGINT) AS product_id, CAST(? AS INT) AS quantity) s
+            ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET quantity = s.quantity, version = t.version + 1
+            WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity) VALUES (s.cart_id, s.product_id, s.quantity)
+            """;
+
+    private static final String MERGE_POSTGRES = """
+            INSERT INTO cart_items (cart_id, product_id, quantity)
+            SELECT ?, product_id, quantity FROM cart_items WHERE cart_id = ?
+            ON CONFLICT (cart_id, product_id)
+                DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity, version = cart_items.version + 1
+            """;
+
+    private static final String MERGE_H2 = """
+            MERGE INTO cart_items t
+            USING (SELECT CAST(? AS UUID) AS cart_id, product_id, quantity FROM cart_items WHERE cart_id = ?) s
+            ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity, version = t.version + 1
+            WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity) VALUES (s.cart_id, s.product_id, s.quantity)
+            """;
+
+    private static final String REMOVE = "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+
+    private static final RowMapper<CartLine> LINE_MAPPER = (rs, rowNum) ->
+            new CartLine(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3), rs.getInt(4));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    CartItemRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new SqlDialect(jdbcTemplate);
+    }
+
+    @Override
+    public Optional<CartLine> incrementQuantity(UUID cartId, Long productId) {
+        var sql = dialect.isH2() ? INCREMENT_H2 : INCREMENT_POSTGRES;
+        return jdbcTemplate.query(sql, LINE_MAPPER, cartId, productId).stream().findFirst();
+    }
+
+    @Override
+    public Optional<CartLine> setQuantity(UUID cartId, Long productId, int quantity) {
+        var sql = dialect.isH2() ? SET_H2 : SET_POSTGRES;
+        return jdbcTemplate.query(sql, LINE_MAPPER, quantity, cartId, productId).stream().findFirst();
+    }
+
+    @Override
+    public void decrementQuantity(UUID cartId, Long productId) {
+        jdbcTemplate.update(DECREMENT, cartId, productId);
+    }
+
+    @Override
+    public void applyChanges(UUID cartId, Collection<CartItemChange> changes) {
+        Map<CartItemChange.Kind, List<Object[]>> batches = new EnumMap<>(CartItemChange.Kind.class);
+        for (CartItemChange change : changes) {
+            Object[] args = change.kind() == CartItemChange.Kind.REMOVE
+                    ? new Object[] {cartId, change.productId()}
+                    : new Object[] {cartId, change.productId(), change.quantity()};
+            batches.computeIfAbsent(change.kind(), ignored -> new ArrayList<>()).add(args);
+        }
+        boolean h2 = dialect.isH2();
+        batches.forEach((kind, args) -> jdbcTemplate.batchUpdate(switch (kind) {
+            case ADD -> h2 ? ADD_H2 : ADD_POSTGRES;
+            case SET -> h2 ? SET_OR_INSERT_H2 : SET_OR_INSERT_POSTGRES;
+            case REMOVE -> REMOVE;
+        }, args));
+    }
+
+    @Override
+    public int mergeInto(UUID targetCartId, UUID sourceCartId) {
+        return jdbcTemplate.update(dialect.isH2() ? MERGE_H2 : MERGE_POSTGRES, targetCartId, sourceCartId);
+    }
+}
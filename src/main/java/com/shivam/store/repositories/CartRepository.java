@@ -1,14 +1,57 @@
 package com.shivam.store.repositories;
 
+import com.shivam.store.carts.CartVersion;
 import com.shivam.store.entities.Cart;
 import com.shivam.store.entities.User;
+import jakarta.persistence.LockModeType;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface CartRepository extends JpaRepository<Cart, UUID> {
+public interface CartRepository extends JpaRepository<Cart, UUID>, CartRepositoryCustom {
 
     Optional<Cart> findFirstByUserOrderByDateCreatedDesc(User user);
 
-    Optional<Cart> findByGuestToken(String guestToken);
+    Optional<Cart> findByGuestTokenHash(String guestTokenHash);
+
+    // Cart, items and products in one round trip; the subquery picks the newest cart like the derived query above.
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.cartItems i LEFT JOIN FETCH i.product "
+            + "WHERE c.id = (SELECT c2.id FROM Cart c2 WHERE c2.user = :user ORDER BY c2.dateCreated DESC LIMIT 1)")
+    Optional<Cart> findLatestWithItemsByUser(@Param("user") User user);
+
+    @EntityGraph(attributePaths = {"cartItems", "cartItems.product"})
+    Optional<Cart> findWithItemsByGuestTokenHash(String guestTokenHash);
+
+    @Query("SELECT new com.shivam.store.carts.CartVersion(c.id, c.version) FROM Cart c WHERE c.user = :user "
+            + "ORDER BY c.dateCreated DESC LIMIT 1")
+    Optional<CartVersion> findLatestVersionByUser(@Param("user") User user);
+
+    @Query("SELECT new com.shivam.store.carts.CartVersion(c.id, c.version) FROM Cart c "
+            + "WHERE c.guestTokenHash = :guestTokenHash")
+    Optional<CartVersion> findVersionByGuestTokenHash(@Param("guestTokenHash") String guestTokenHash);
+
+    // Locks the guest cart row for a merge; a concurrent merge of the same cart waits here and then finds nothing.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Cart c WHERE c.guestTokenHash = :guestTokenHash")
+    Optional<UUID> lockIdByGuestTokenHash(@Param("guestTokenHash") String guestTokenHash);
+
+    // Flushes pending entity changes first and clears the persistence context after, so no managed Cart
+    // outlives a write made behind Hibernate's back.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.version = c.version + 1 WHERE c.id = :id")
+    int incrementVersion(@Param("id") UUID id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.user = :user, c.guestTokenHash = null, c.version = c.version + 1 WHERE c.id = :id")
+    int assignToUser(@Param("id") UUID id, @Param("user") User user);
+
+    // Bulk delete, so the items go through the ON DELETE CASCADE instead of being loaded and removed one by one.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Cart c WHERE c.id = :id")
+    int deleteWithItems(@Param("id") UUID id);
 }
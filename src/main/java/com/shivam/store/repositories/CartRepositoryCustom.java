@@ -0,0 +1,25 @@
+package com.shivam.store.repositories;
+
+import com.shivam.store.carts.CartVersion;
+import java.util.Optional;
+
+/**
+ * Cart statements that Spring Data cannot derive. Guest cart creation is arbitrated by the unique index on
+ * {@code guest_token_hash}: two first requests from the same new guest both get to create the cart, and the one
+ * that loses finds the winner's cart instead of failing. Version bumps find the owner's cart, move its version and
+ * return the new one in a single statement.
+ */
+public interface CartRepositoryCustom {
+
+    /** Creates an empty guest cart unless the guest already has one; returns whether it created one. */
+    boolean insertGuestCartIfAbsent(String guestTokenHash);
+
+    /**
+     * Bumps the version of the user's newest cart; with {@code expectedVersion} only if that is still its version.
+     * Empty when the user has no cart or the compare-and-set lost.
+     */
+    Optional<CartVersion> bumpUserCartVersion(long userId, Long expectedVersion);
+
+    /** Like {@link #bumpUserCartVersion} for the guest cart with this token hash. */
+    Optional<CartVersion> bumpGuestCartVersion(String guestTokenHash, Long expectedVersion);
+}
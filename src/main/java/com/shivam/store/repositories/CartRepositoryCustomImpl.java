@@ -0,0 +1,85 @@
+package com.shivam.store.repositories;
+
+import com.shivam.store.carts.CartVersion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Postgres gets {@code INSERT ... ON CONFLICT DO NOTHING}, which waits for a concurrent insert of the same guest
+ * and then skips instead of raising a unique violation that would abort the enclosing transaction. H2, used for
+ * tests and the local profile, has no {@code ON CONFLICT}, so it runs the equivalent {@code MERGE}.
+ *
+ * <p>Version bumps are {@code UPDATE ... RETURNING} on Postgres and the same {@code UPDATE} inside
+ * {@code FINAL TABLE (...)} on H2, with the owner lookup as the {@code WHERE} clause.
+ */
+class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    private static final String INSERT_GUEST_POSTGRES = """
+            INSERT INTO carts (guest_token_hash) VALUES (?)
+            ON CONFLICT (guest_token_hash) DO NOTHING
+            """;
+
+    private static final String INSERT_GUEST_H2 = """
+            MERGE INTO carts t
+            USING (SELECT CAST(? AS VARCHAR(64)) AS guest_token_hash) s
+            ON t.guest_token_hash = s.guest_token_hash
+            WHEN NOT MATCHED THEN INSERT (guest_token_hash) VALUES (s.guest_token_hash)
+            """;
+
+    private static final String BUMP_USER_CART = """
+            UPDATE carts SET version = version + 1
+            WHERE id = (SELECT c.id FROM carts c WHERE c.user_id = ? ORDER BY c.date_created DESC LIMIT 1)""";
+
+    private static final String BUMP_GUEST_CART = "UPDATE carts SET version = version + 1 WHERE guest_token_hash = ?";
+
+    private static final RowMapper<CartVersion> VERSION_MAPPER = (rs, rowNum) ->
+            new CartVersion(rs.getObject(1, UUID.class), rs.getLong(2));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    CartRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new SqlDialect(jdbcTemplate);
+    }
+
+    @Override
+    public boolean insertGuestCartIfAbsent(String guestTokenHash) {
+        return jdbcTemplate.update(dialect.isH2() ? INSERT_GUEST_H2 : INSERT_GUEST_POSTGRES, guestTokenHash) > 0;
+    }
+
+    @Override
+    public Optional<CartVersion> bumpUserCartVersion(long userId, Long expectedVersion) {
+        return bump(BUMP_USER_CART, userId, expectedVersion);
+    }
+
+    @Override
+    public Optional<CartVersion> bumpGuestCartVersion(String guestTokenHash, Long expectedVersion) {
+        return bump(BUMP_GUEST_CART, guestTokenHash, expectedVersion);
+    }
+
+    // Like the JPQL bumps in CartRepository: pending entity changes are flushed first, and the persistence context
+    // is cleared after, so no managed Cart outlives a write made behind Hibernate's back.
+    private Optional<CartVersion> bump(String update, Object owner, Long expectedVersion) {
+        List<Object> args = new ArrayList<>(List.of(owner));
+        if (expectedVersion != null) {
+            update += " AND version = ?";
+            args.add(expectedVersion);
+        }
+        var sql = dialect.isH2()
+                ? "SELECT id, version FROM FINAL TABLE (" + update + ")"
+                : update + " RETURNING id, version";
+        entityManager.flush();
+        var bumped = jdbcTemplate.query(sql, VERSION_MAPPER, args.toArray()).stream().findFirst();
+        entityManager.clear();
+        return bumped;
+    }
+}
@@ -1,9 +1,16 @@
 package com.shivam.store.repositories;
 
 import com.shivam.store.entities.OrderItem;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.math.BigInteger;
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, BigInteger> {
+
+    @Query("SELECT oi.product.id FROM OrderItem oi WHERE oi.product IS NOT NULL "
+            + "GROUP BY oi.product.id ORDER BY SUM(oi.quantity) DESC")
+    List<Long> findTopSellingProductIds(Limit limit);
 }
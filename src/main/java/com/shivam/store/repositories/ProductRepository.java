@@ -1,10 +1,28 @@
 package com.shivam.store.repositories;
 
 import com.shivam.store.entities.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategory_Id(Byte categoryId);
-}
\ No newline at end of file
+
+    // Cached product lists are kept in id order so they can be patched in place after a write.
+    List<Product> findAllByOrderByIdAsc();
+
+    List<Product> findByCategory_IdOrderByIdAsc(Byte categoryId);
+
+    // Keyset pagination: seek past the cursor on the primary key instead of OFFSET scanning.
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    List<Product> findByCategory_IdAndIdGreaterThanOrderByIdAsc(Byte categoryId, Long after, Limit limit);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+}
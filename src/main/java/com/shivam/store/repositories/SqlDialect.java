@@ -0,0 +1,28 @@
+package com.shivam.store.repositories;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Which SQL the hand-written repository statements use: Postgres in production, H2 for tests and the local
+ * profile. Read from the connection metadata on first use and kept by the repository that asked.
+ */
+class SqlDialect {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean h2;
+
+    SqlDialect(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    boolean isH2() {
+        Boolean result = h2;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "H2".equals(connection.getMetaData().getDatabaseProductName()));
+            h2 = result;
+        }
+        return result;
+    }
+}
@@ -1,26 +1,70 @@
 package com.shivam.store.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shivam.store.cache.TwoTierCacheManager;
 import com.shivam.store.entities.User;
 import com.shivam.store.repositories.UserRepository;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.time.Duration;
 import java.util.Optional;
 
+/**
+ * Resolves the authenticated user without a users-table read on every call: once per request the user is
+ * remembered as a request attribute, and across requests its {@link AuthenticatedUser} is kept per user id for a
+ * short TTL. Callers get the same read-only principal whether or not it was cached.
+ *
+ * <p>Users changed or deleted here are evicted at once on this node and, with Redis as the cache, on every other
+ * node through the cache invalidation channel. Only if that broadcast is lost (or without Redis, where there is
+ * one node) can a demoted or deleted user keep its old role for up to {@code app.auth.user-cache.time-to-live}.
+ */
 @Service
-@AllArgsConstructor
 public class AuthService {
 
+    static final String USER_CACHE = "auth:users";
+    private static final String REQUEST_ATTRIBUTE = AuthService.class.getName() + ".user";
+
     private final UserRepository userRepository;
+    private final Cache<Long, AuthenticatedUser> users;
+    private final TwoTierCacheManager invalidation;
+
+    public AuthService(UserRepository userRepository,
+                       ObjectProvider<TwoTierCacheManager> cacheManager,
+                       @Value("${app.auth.user-cache.time-to-live:PT30S}") Duration timeToLive,
+                       @Value("${app.auth.user-cache.maximum-size:10000}") long maximumSize) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.invalidation = cacheManager.getIfAvailable();
+        if (invalidation != null) {
+            invalidation.registerLocalCache(USER_CACHE, userId -> users.invalidate(Long.valueOf(userId)));
+        }
+    }
 
-    public User getUser() {
+    public AuthenticatedUser getUser() {
         return findAuthenticatedUser()
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
-    public Optional<User> findAuthenticatedUser() {
+    /** A reference to the current user's entity for foreign keys and queries; its fields load only if read. */
+    public User getUserReference() {
+        return getReference(getUser());
+    }
+
+    public User getReference(AuthenticatedUser user) {
+        return userRepository.getReferenceById(user.id());
+    }
+
+    public Optional<AuthenticatedUser> findAuthenticatedUser() {
         var authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             return Optional.empty();
@@ -29,6 +73,37 @@ public class AuthService {
         if (!(principal instanceof Long id)) {
             return Optional.empty();
         }
-        return userRepository.findById(id);
+
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof AuthenticatedUser remembered
+                && id.equals(remembered.id())) {
+            return Optional.of(remembered);
+        }
+
+        var cached = users.getIfPresent(id);
+        var user = cached != null
+                ? Optional.of(cached)
+                : userRepository.findById(id).map(found -> {
+                    var loaded = AuthenticatedUser.of(found);
+                    users.put(id, loaded);
+                    return loaded;
+                });
+        if (attributes != null) {
+            user.ifPresent(found -> attributes.setAttribute(REQUEST_ATTRIBUTE, found, RequestAttributes.SCOPE_REQUEST));
+        }
+        return user;
+    }
+
+    /** Drops the cached copy of a user after it was updated or deleted, here and on the other nodes. */
+    public void evict(Long userId) {
+        users.invalidate(userId);
+        if (invalidation != null) {
+            invalidation.broadcastEvict(USER_CACHE, userId.toString());
+        }
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
     }
 }
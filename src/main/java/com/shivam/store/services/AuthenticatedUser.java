@@ -0,0 +1,16 @@
+package com.shivam.store.services;
+
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+
+/**
+ * The signed-in user as the rest of a request sees it: id (ownership checks), name, email and role, never the
+ * password hash. Immutable, so one instance can be shared across requests and threads. Code that needs the
+ * entity, e.g. for a foreign key, asks {@link AuthService#getUserReference()} for it.
+ */
+public record AuthenticatedUser(Long id, String name, String email, Role role) {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getName(), user.getEmail(), user.getRole());
+    }
+}
@@ -1,16 +1,23 @@
 package com.shivam.store.services;
 
-import com.shivam.store.entities.Cart;
+import com.shivam.store.carts.RedisCartStore;
 import com.shivam.store.entities.User;
+import com.shivam.store.repositories.CartItemRepository;
 import com.shivam.store.repositories.CartRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class CartOwnershipService {
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final JwtService jwtService;
+    private final TransactionTemplate transactionTemplate;
+    @Autowired(required = false)
+    private RedisCartStore redisCartStore;
 
     public void promoteToUser(String guestToken, User user) {
         // OWASP A04: only merge carts for verified, non-expired guest tokens.
@@ -18,34 +25,35 @@ public class CartOwnershipService {
             return;
         }
 
-        var guestCartOpt = cartRepository.findByGuestToken(guestToken);
-        if (guestCartOpt.isEmpty()) {
+        if (redisCartStore != null) {
+            redisCartStore.promoteToUser(guestToken, user);
             return;
         }
 
-        var guestCart = guestCartOpt.get();
-        var userCartOpt = cartRepository.findFirstByUserOrderByDateCreatedDesc(user);
+        transactionTemplate.executeWithoutResult(status -> mergeGuestCart(guestToken, user));
+    }
+
+    /**
+     * Set-based merge: the guest cart row is locked, its lines are upserted into the user's cart in one
+     * statement and the guest cart is deleted with them. A repeated or concurrent login with the same guest
+     * token waits on the lock and then finds no guest cart, so the merge happens once.
+     */
+    private void mergeGuestCart(String guestToken, User user) {
+        var guestCartId = cartRepository.lockIdByGuestTokenHash(TokenDigest.sha256Hex(guestToken));
+        if (guestCartId.isEmpty()) {
+            return;
+        }
 
-        if (userCartOpt.isEmpty()) {
-            guestCart.setUser(user);
-            guestCart.setGuestToken(null);
-            cartRepository.save(guestCart);
+        var userCart = cartRepository.findLatestVersionByUser(user);
+        if (userCart.isEmpty()) {
+            cartRepository.assignToUser(guestCartId.get(), user);
             return;
         }
 
-        var userCart = userCartOpt.get();
-        guestCart.getCartItems().forEach(guestItem -> {
-            var existing = userCart.getItem(guestItem.getProduct().getId());
-            if (existing == null) {
-                var newItem = userCart.addItem(guestItem.getProduct());
-                newItem.setQuantity(guestItem.getQuantity());
-            } else {
-                existing.setQuantity(existing.getQuantity() + guestItem.getQuantity());
-            }
-        });
-
-        cartRepository.save(userCart);
-        cartRepository.delete(guestCart);
+        var userCartId = userCart.get().cartId();
+        cartItemRepository.mergeInto(userCartId, guestCartId.get());
+        cartRepository.incrementVersion(userCartId);
+        cartRepository.deleteWithItems(guestCartId.get());
     }
 
     private boolean isValidGuestToken(String guestToken) {
@@ -1,131 +1,285 @@
 package com.shivam.store.services;
 
+import com.shivam.store.carts.CartItemChange;
 import com.shivam.store.carts.CartOwner;
+import com.shivam.store.carts.CartVersion;
+import com.shivam.store.carts.CurrentCartMemo;
+import com.shivam.store.carts.RedisCartStore;
 import com.shivam.store.dtos.CartDto;
 import com.shivam.store.dtos.CartItemDto;
+import com.shivam.store.dtos.CartItemOperationDto;
 import com.shivam.store.entities.Cart;
+import com.shivam.store.exceptions.CartConflictException;
 import com.shivam.store.exceptions.CartItemNotFoundException;
-import com.shivam.store.exceptions.CartNotFoundException;
+import com.shivam.store.exceptions.CartVersionMismatchException;
 import com.shivam.store.exceptions.IncorrectUserException;
 import com.shivam.store.exceptions.ProductNotFoundException;
 import com.shivam.store.mappers.CartMapper;
+import com.shivam.store.repositories.CartItemRepository;
 import com.shivam.store.repositories.CartRepository;
 import com.shivam.store.repositories.ProductRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
+    // A write that hits an optimistic-lock failure is re-read and re-applied; after this many attempts it is a 409.
+    static final int MAX_WRITE_ATTEMPTS = 3;
+
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final CartMapper cartMapper;
+    private final TransactionTemplate transactionTemplate;
+    // Present only with app.carts.store=redis; every public operation then goes through it.
+    @Autowired(required = false)
+    private RedisCartStore redisCartStore;
 
     public CartDto createCart(CartOwner owner) {
-        var existing = owner.user()
-                .flatMap(cartRepository::findFirstByUserOrderByDateCreatedDesc);
-
-        if (existing.isEmpty() && owner.hasGuestToken()) {
-            existing = owner.guestToken().flatMap(cartRepository::findByGuestToken)
-                    .map(cart -> attachUserIfPresent(cart, owner));
+        if (redisCartStore != null) {
+            return redisCartStore.getCart(owner);
         }
-
-        if (existing.isEmpty()) {
-            var cart = new Cart();
-            owner.user().ifPresent(cart::setUser);
-            owner.guestToken().ifPresent(cart::setGuestToken);
-            cartRepository.save(cart);
-            return cartMapper.toDto(cart);
-        }
-
-        var resolved = attachUserIfPresent(existing.get(), owner);
-        return cartMapper.toDto(resolved);
+        return cartMapper.toDto(resolveCart(owner));
     }
 
     public CartItemDto addProductToCurrentCart(Long productId, CartOwner owner) {
-        var cart = requireCurrentCart(owner);
-        var product = productRepository.findById(productId).orElseThrow(ProductNotFoundException::new);
-        var cartItem = cart.addItem(product);
-        cartRepository.save(cart);
-        return cartMapper.toCartItemDto(cartItem);
+        return addProductToCurrentCart(productId, owner, null);
+    }
+
+    /** {@code expectedVersion} is the client's {@code If-Match}; null applies the write to whatever is current. */
+    public CartItemDto addProductToCurrentCart(Long productId, CartOwner owner, Long expectedVersion) {
+        if (redisCartStore != null) {
+            return redisCartStore.addProduct(productId, owner, expectedVersion);
+        }
+        var written = write(owner, expectedVersion, cartId -> cartItemRepository.incrementQuantity(cartId, productId)
+                .orElseThrow(ProductNotFoundException::new));
+        var cartItemDto = cartMapper.toCartItemDto(written.result());
+        cartItemDto.setCartVersion(written.version());
+        return cartItemDto;
     }
 
     public CartDto getCurrentCart(CartOwner owner) {
+        if (redisCartStore != null) {
+            return redisCartStore.getCart(owner);
+        }
         var cart = requireCurrentCart(owner);
         return cartMapper.toDto(cart);
     }
 
     public Cart getCurrentCartEntity(CartOwner owner) {
+        if (redisCartStore != null) {
+            // Checkout reads the entity, so pending write-behind changes must be in Postgres first.
+            redisCartStore.flush(owner);
+        }
         return requireCurrentCart(owner);
     }
 
     public CartItemDto updateCurrentCartItem(Long productId, Integer quantity, CartOwner owner) {
-        var cart = requireCurrentCart(owner);
-        var cartItem = cart.getItem(productId);
-        if (cartItem == null) {
-            throw new CartItemNotFoundException();
+        return updateCurrentCartItem(productId, quantity, owner, null);
+    }
+
+    public CartItemDto updateCurrentCartItem(Long productId, Integer quantity, CartOwner owner, Long expectedVersion) {
+        if (redisCartStore != null) {
+            return redisCartStore.updateItem(productId, quantity, owner, expectedVersion);
         }
-        cartItem.setQuantity(quantity);
-        cartRepository.save(cart);
-        return cartMapper.toCartItemDto(cartItem);
+        var written = write(owner, expectedVersion, cartId -> cartItemRepository.setQuantity(cartId, productId, quantity)
+                .orElseThrow(CartItemNotFoundException::new));
+        var cartItemDto = cartMapper.toCartItemDto(written.result());
+        cartItemDto.setCartVersion(written.version());
+        return cartItemDto;
     }
 
     public void deleteProductFromCurrentCart(Long productId, CartOwner owner) {
-        var cart = requireCurrentCart(owner);
-        cart.removeItem(productId);
-        cartRepository.save(cart);
+        deleteProductFromCurrentCart(productId, owner, null);
+    }
+
+    /** Returns the cart version after the write. */
+    public Long deleteProductFromCurrentCart(Long productId, CartOwner owner, Long expectedVersion) {
+        if (redisCartStore != null) {
+            return redisCartStore.removeProduct(productId, owner, expectedVersion);
+        }
+        return write(owner, expectedVersion, cartId -> {
+            cartItemRepository.decrementQuantity(cartId, productId);
+            return cartId;
+        }).version();
+    }
+
+    /**
+     * Applies a batch of item operations as one write: one bulk product check, one version bump, at most one
+     * statement batch per kind of change, and one read of the resulting cart, all in the same transaction.
+     */
+    public CartDto updateCurrentCart(List<CartItemOperationDto> operations, CartOwner owner, Long expectedVersion) {
+        var changes = CartItemChange.coalesce(operations.stream().map(CartService::toChange).toList());
+        requireProductsExist(changes);
+        if (redisCartStore != null) {
+            return redisCartStore.apply(changes, owner, expectedVersion);
+        }
+        return write(owner, expectedVersion, cartId -> {
+            cartItemRepository.applyChanges(cartId, changes);
+            // The cart may have been created and remembered by this write before its items changed.
+            CurrentCartMemo.forget(owner);
+            return cartMapper.toDto(resolveCart(owner));
+        }).result();
     }
 
     public void clearCurrentCart(CartOwner owner) {
-        var cart = requireCurrentCart(owner);
-        cart.clear();
-        cartRepository.save(cart);
-    }
-
-    private Cart requireOwnedCart(UUID id, CartOwner owner) {
-        var cart = cartRepository.findById(id).orElseThrow(CartNotFoundException::new);
-        
-        if (owner.hasUser()) {
-            var userId = owner.user().map(u -> u.getId()).orElseThrow(IncorrectUserException::new);
-            if (cart.getUser() == null && matchesGuestToken(cart, owner)) {
-                cart.setUser(owner.user().get());
-                cart.setGuestToken(null);
-                cartRepository.save(cart);
-            }
-            if (cart.getUser() == null || !cart.getUser().getId().equals(userId)) {
-                throw new IncorrectUserException();
-            }
-            return cart;
+        clearCurrentCart(owner, null);
+    }
+
+    /** Returns the cart version after the write. */
+    public Long clearCurrentCart(CartOwner owner, Long expectedVersion) {
+        if (redisCartStore != null) {
+            return redisCartStore.clear(owner, expectedVersion);
         }
+        return write(owner, expectedVersion, cartItemRepository::deleteByCartId).version();
+    }
 
-        if (owner.hasGuestToken()) {
-            var token = owner.guestToken().orElseThrow(IncorrectUserException::new);
-            if (!matchesGuestToken(cart, owner)) {
-                throw new IncorrectUserException();
+    private Cart requireCurrentCart(CartOwner owner) {
+        requireOwner(owner);
+        return resolveCart(owner);
+    }
+
+    /**
+     * Runs one cart write in a transaction that also moves the cart version forward. The bump finds the owner's
+     * cart and returns its new version in the same statement, so a write to an existing cart is two statements:
+     * the bump and the item statement. Item statements commute, so without an {@code If-Match} the version is
+     * bumped unconditionally and concurrent writers simply queue on the cart row. With one, the bump is a
+     * compare-and-set against the client's version and losing it is a 412. Optimistic-lock failures from the
+     * entity (creating or adopting a cart, or the cart vanishing underneath the write) are retried from a fresh
+     * read.
+     */
+    private <T> Written<T> write(CartOwner owner, Long expectedVersion, Function<UUID, T> statement) {
+        requireOwner(owner);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    var bumped = bumpVersion(owner, expectedVersion);
+                    if (bumped.isEmpty()) {
+                        // No cart yet, or the If-Match lost. Creating the cart or adopting the guest cart goes
+                        // through the entity once; an existing cart at another version is a 412.
+                        var current = currentCartVersion(owner);
+                        if (expectedVersion != null && expectedVersion != current.version()) {
+                            throw new CartVersionMismatchException();
+                        }
+                        bumped = bumpVersion(owner, expectedVersion);
+                    }
+                    var version = bumped.orElseThrow(() -> expectedVersion != null
+                            ? new CartVersionMismatchException()
+                            : new ObjectOptimisticLockingFailureException("Cart vanished before its version moved", null));
+                    return new Written<>(statement.apply(version.cartId()), version.version());
+                });
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                if (expectedVersion != null) {
+                    throw new CartVersionMismatchException();
+                }
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    throw new CartConflictException();
+                }
+            } finally {
+                // The statements bypass the entity, so a cart remembered earlier in the request is out of date.
+                CurrentCartMemo.forget(owner);
             }
-            return cart;
         }
-        throw new IncorrectUserException();
     }
 
-    private Cart requireCurrentCart(CartOwner owner) {
-        var cartDto = createCart(owner);
-        return requireOwnedCart(cartDto.getId(), owner);
+    private Optional<CartVersion> bumpVersion(CartOwner owner, Long expectedVersion) {
+        return owner.hasUser()
+                ? cartRepository.bumpUserCartVersion(owner.user().get().getId(), expectedVersion)
+                : cartRepository.bumpGuestCartVersion(owner.guestTokenHash().orElseThrow(), expectedVersion);
     }
 
-    private boolean matchesGuestToken(Cart cart, CartOwner owner) {
-        var token = owner.guestToken().orElse(null);
-        return token != null && cart.getGuestToken() != null && cart.getGuestToken().equals(token);
+    private CartVersion currentCartVersion(CartOwner owner) {
+        Optional<CartVersion> current = owner.hasUser()
+                ? owner.user().flatMap(cartRepository::findLatestVersionByUser)
+                : owner.guestTokenHash().flatMap(cartRepository::findVersionByGuestTokenHash);
+        return current.orElseGet(() -> {
+            var cart = resolveCart(owner);
+            return new CartVersion(cart.getId(), cart.getVersion());
+        });
+    }
+
+    private static CartItemChange toChange(CartItemOperationDto operation) {
+        var quantity = operation.getQuantity();
+        if (operation.getOp() == CartItemChange.Kind.SET && quantity == null) {
+            throw new IllegalArgumentException("SET requires a quantity");
+        }
+        return new CartItemChange(operation.getProductId(), operation.getOp(), quantity != null ? quantity : 1);
+    }
+
+    private void requireProductsExist(Collection<CartItemChange> changes) {
+        // Removing a product that no longer exists is harmless; adding or setting one is not.
+        Set<Long> productIds = changes.stream()
+                .filter(change -> change.kind() != CartItemChange.Kind.REMOVE)
+                .map(CartItemChange::productId)
+                .collect(Collectors.toSet());
+        if (!productIds.isEmpty() && productRepository.findExistingIds(productIds).size() != productIds.size()) {
+            throw new ProductNotFoundException();
+        }
+    }
+
+    private static void requireOwner(CartOwner owner) {
+        // The cart is looked up by its owner, so finding it is the ownership check.
+        if (!owner.hasUser() && !owner.hasGuestToken()) {
+            throw new IncorrectUserException();
+        }
+    }
+
+    /**
+     * Finds the owner's cart with its items and products in one query, creating it if needed. The result is
+     * remembered for the rest of the request.
+     */
+    private Cart resolveCart(CartOwner owner) {
+        var memo = CurrentCartMemo.get(owner);
+        if (memo != null) {
+            return memo;
+        }
+
+        var existing = owner.user()
+                .flatMap(cartRepository::findLatestWithItemsByUser);
+
+        if (existing.isEmpty() && owner.hasGuestToken()) {
+            existing = owner.guestTokenHash().flatMap(cartRepository::findWithItemsByGuestTokenHash);
+        }
+
+        Cart cart;
+        if (existing.isEmpty() && owner.hasUser()) {
+            // Like an adopted guest cart, a user's cart is not keyed by the guest token.
+            cart = new Cart();
+            cart.setUser(owner.user().get());
+            cartRepository.save(cart);
+        } else if (existing.isEmpty()) {
+            var guestTokenHash = owner.guestTokenHash().orElseThrow();
+            cartRepository.insertGuestCartIfAbsent(guestTokenHash);
+            cart = cartRepository.findWithItemsByGuestTokenHash(guestTokenHash).orElseThrow();
+        } else {
+            cart = attachUserIfPresent(existing.get(), owner);
+        }
+        CurrentCartMemo.put(owner, cart);
+        return cart;
     }
 
     private Cart attachUserIfPresent(Cart cart, CartOwner owner) {
         if (owner.hasUser() && cart.getUser() == null) {
             cart.setUser(owner.user().get());
-            cart.setGuestToken(null);
-            cartRepository.save(cart);
+            cart.setGuestTokenHash(null);
+            // Flushed now so the version read from the entity is the one in the database.
+            cartRepository.saveAndFlush(cart);
         }
         return cart;
     }
+
+    private record Written<T>(T result, long version) {
+    }
 }
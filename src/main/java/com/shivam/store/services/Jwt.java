@@ -4,14 +4,15 @@ import com.shivam.store.entities.Role;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 
 public class Jwt {
-    private final SecretKey secretKey;
+    private final JwtKeyRing.SigningKey signingKey;
     private final Claims claims;
-    public Jwt(SecretKey secretKey, Claims claims) {
-        this.secretKey = secretKey;
+    // ES256 and EdDSA signatures cost far more than HMAC and ES256 ones differ per call, so sign once.
+    private String compact;
+    public Jwt(JwtKeyRing.SigningKey signingKey, Claims claims) {
+        this.signingKey = signingKey;
         this.claims = claims;
     }
 
@@ -19,6 +20,10 @@ public class Jwt {
         return claims.getExpiration().before(new Date());
     }
 
+    public Date getExpiration(){
+        return claims.getExpiration();
+    }
+
     public Long getUserId(){
         return Long.valueOf(claims.getSubject());
     }
@@ -30,6 +35,13 @@ public class Jwt {
     public boolean isGuest(){ return claims.get("type", String.class).equals("guest");}
 
     public String toString(){
-        return Jwts.builder().claims(claims).signWith(secretKey).compact();
+        if (compact == null) {
+            var builder = Jwts.builder();
+            if (signingKey.id() != null) {
+                builder.header().keyId(signingKey.id());
+            }
+            compact = builder.claims(claims).signWith(signingKey.key()).compact();
+        }
+        return compact;
     }
 }
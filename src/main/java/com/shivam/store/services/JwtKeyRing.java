@@ -0,0 +1,276 @@
+package com.shivam.store.services;
+
+import com.shivam.store.config.JwtConfig;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The keys {@link JwtService} signs and verifies with. With HS256 that is the shared secret and nothing else.
+ * With ES256 or EdDSA every node signs with its own key pair, replaced every {@code spring.jwt.key-rotation},
+ * and tokens carry the key id ({@code kid}) of the key that signed them.
+ *
+ * <p>A public key stays valid for verification until the longest-lived token it can have signed has expired,
+ * so rotating never logs anyone out. Public keys are published as JWKs to a Redis sorted set scored by that
+ * expiry, so they outlive restarts and these algorithms need Redis as the cache; a node that meets a {@code kid}
+ * it does not know reloads the set, at most once per {@link #RELOAD_INTERVAL}. Private keys never leave the node
+ * that generated them, and a node only starts signing with a new key once its public half is in the set.
+ *
+ * <p>Redis is not a trust anchor: each published JWK is wrapped in a token signed with the shared secret
+ * ({@code spring.jwt.secret}), and a reload only accepts keys whose wrapper verifies. Being able to write to the
+ * cache is therefore not enough to get a key trusted, just as it was not enough to forge an HS256 token.
+ */
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    static final String JWKS_KEY = "jwt:jwks";
+    static final Duration RELOAD_INTERVAL = Duration.ofSeconds(5);
+    private static final String JWK_CLAIM = "jwk";
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final JwtConfig jwtConfig;
+    private final StringRedisTemplate redisTemplate;
+    // kid -> public key, this node's and every other node's that has not expired yet.
+    private final Map<String, VerificationKey> verificationKeys = new ConcurrentHashMap<>();
+    private volatile SigningKey signingKey;
+    // A generated key pair that has not been published yet; retried until it is.
+    private volatile PendingKey pendingKey;
+    private volatile long lastReloadMillis;
+
+    /** A ring that keeps its keys to itself, for a single node or outside Spring. */
+    public JwtKeyRing(JwtConfig jwtConfig) {
+        this.jwtConfig = jwtConfig;
+        this.redisTemplate = null;
+        rotate();
+    }
+
+    @Autowired
+    public JwtKeyRing(JwtConfig jwtConfig,
+                      ObjectProvider<StringRedisTemplate> redisTemplate,
+                      @Value("${spring.cache.type:redis}") String cacheType) {
+        this.jwtConfig = jwtConfig;
+        this.redisTemplate = jwtConfig.getAlgorithm().isAsymmetric() && "redis".equals(cacheType)
+                ? redisTemplate.getIfAvailable()
+                : null;
+        if (jwtConfig.getAlgorithm().isAsymmetric() && this.redisTemplate == null) {
+            // Without the shared set a restart would forget every public key and log out everyone it had signed for.
+            throw new IllegalStateException("spring.jwt.algorithm=" + jwtConfig.getAlgorithm()
+                    + " needs Redis as the cache (spring.cache.type=redis) to keep its public keys; use HS256 without it");
+        }
+        reload();
+        rotate();
+    }
+
+    public boolean isSymmetric() {
+        return !jwtConfig.getAlgorithm().isAsymmetric();
+    }
+
+    /** The key new tokens are signed with; its id is null for HS256. */
+    public SigningKey signingKey() {
+        return isSymmetric() ? new SigningKey(null, jwtConfig.getSecretKey()) : signingKey;
+    }
+
+    /**
+     * Starts signing with a fresh key pair once its public key is published; the previous public key stays in
+     * the ring until it expires.
+     */
+    @Scheduled(fixedDelayString = "${spring.jwt.key-rotation:P1D}", initialDelayString = "${spring.jwt.key-rotation:P1D}")
+    public void rotate() {
+        if (isSymmetric()) {
+            return;
+        }
+        KeyPair keyPair = switch (jwtConfig.getAlgorithm()) {
+            case ES256 -> Jwks.CRV.P256.keyPair().build();
+            case EDDSA -> Jwks.CRV.Ed25519.keyPair().build();
+            case HS256 -> throw new IllegalStateException("HS256 has no key pair");
+        };
+        PublicJwk<?> jwk = Jwks.builder().key(keyPair.getPublic()).idFromThumbprint().build();
+        // Tokens signed up to the next rotation can live for the longest expiration after that.
+        var expiresAt = Instant.now()
+                .plus(jwtConfig.getKeyRotation())
+                .plusSeconds(maxTokenLifetimeSeconds());
+        pendingKey = new PendingKey(new SigningKey(jwk.getId(), keyPair.getPrivate()),
+                new VerificationKey(keyPair.getPublic(), Jwks.json(jwk), expiresAt));
+        activatePendingKey();
+    }
+
+    /** Publishes a key pair whose rotation could not be published, and switches to it once that succeeds. */
+    @Scheduled(fixedDelayString = "${spring.jwt.key-publish-retry:PT30S}")
+    public void retryPendingKey() {
+        if (pendingKey != null) {
+            activatePendingKey();
+        }
+    }
+
+    private synchronized void activatePendingKey() {
+        var pending = pendingKey;
+        if (pending == null) {
+            return;
+        }
+        var kid = pending.signingKey().id();
+        boolean published = publish(pending.verificationKey());
+        if (!published && currentKeyCoversNewTokens()) {
+            // Other nodes could not find the new kid, so keep signing with the key they know.
+            log.warn("security_event=jwt_key_rotation_deferred kid={}", kid);
+            return;
+        }
+        verificationKeys.put(kid, pending.verificationKey());
+        signingKey = pending.signingKey();
+        verificationKeys.values().removeIf(VerificationKey::isExpired);
+        if (published) {
+            pendingKey = null;
+        }
+        log.info("security_event=jwt_key_rotated kid={} algorithm={} published={}", kid, jwtConfig.getAlgorithm(), published);
+    }
+
+    // A token signed now must not outlive its key's published expiry; past that point an unpublished key is
+    // still better than none, and keeps being retried.
+    private boolean currentKeyCoversNewTokens() {
+        var current = signingKey;
+        var key = current != null ? verificationKeys.get(current.id()) : null;
+        return key != null && key.expiresAt().isAfter(Instant.now().plusSeconds(maxTokenLifetimeSeconds()));
+    }
+
+    private long maxTokenLifetimeSeconds() {
+        return Math.max(jwtConfig.getRefreshExpiration(), jwtConfig.getGuestExpiration());
+    }
+
+    /**
+     * The unexpired public keys as a JWK Set document, including the ones other nodes rotated in since the last
+     * reload. Reloads share {@link #RELOAD_INTERVAL} with unknown {@code kid}s, as this endpoint is public too.
+     */
+    public String publicJwksJson() {
+        if (reloadAllowed()) {
+            reload();
+        }
+        List<String> keys = verificationKeys.values().stream()
+                .filter(key -> !key.isExpired())
+                .map(VerificationKey::json)
+                .toList();
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        var keyId = header.getKeyId();
+        if (keyId == null) {
+            throw new JwtException("Token has no key id");
+        }
+        var key = verificationKeys.get(keyId);
+        if (key == null && reloadAllowed()) {
+            reload();
+            key = verificationKeys.get(keyId);
+        }
+        if (key == null || key.isExpired()) {
+            throw new JwtException("Unknown or expired signing key");
+        }
+        return key.publicKey();
+    }
+
+    private boolean reloadAllowed() {
+        // Unknown kids are attacker-controlled, so they must not turn into a Redis round trip each.
+        long now = System.currentTimeMillis();
+        long last = lastReloadMillis;
+        if (redisTemplate == null || now - last < RELOAD_INTERVAL.toMillis()) {
+            return false;
+        }
+        lastReloadMillis = now;
+        return true;
+    }
+
+    /** False if the key could not be published; true when there is nowhere to publish it. */
+    private boolean publish(VerificationKey key) {
+        if (redisTemplate == null) {
+            return true;
+        }
+        try {
+            // The expiry is signed along with the key, so rewriting the score cannot keep a key alive longer.
+            var signed = Jwts.builder()
+                    .claim(JWK_CLAIM, key.json())
+                    .expiration(Date.from(key.expiresAt()))
+                    .signWith(jwtConfig.getSecretKey())
+                    .compact();
+            var zset = redisTemplate.opsForZSet();
+            zset.removeRangeByScore(JWKS_KEY, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+            zset.add(JWKS_KEY, signed, key.expiresAt().toEpochMilli());
+            return true;
+        } catch (RuntimeException ex) {
+            log.warn("security_event=jwt_key_publish_failed reason={}", ex.getClass().getSimpleName());
+            return false;
+        }
+    }
+
+    private void reload() {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            var published = redisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(JWKS_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+            if (published == null) {
+                return;
+            }
+            var parser = Jwts.parser().verifyWith(jwtConfig.getSecretKey()).build();
+            for (ZSetOperations.TypedTuple<String> entry : published) {
+                trust(parser, entry.getValue());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("security_event=jwt_key_reload_failed reason={}", ex.getClass().getSimpleName());
+        }
+    }
+
+    private void trust(JwtParser parser, String signed) {
+        try {
+            var claims = parser.parseSignedClaims(signed).getPayload();
+            var json = claims.get(JWK_CLAIM, String.class);
+            var jwk = Jwks.parser().build().parse(json);
+            if (jwk.getId() != null && jwk.toKey() instanceof PublicKey publicKey) {
+                var expiresAt = claims.getExpiration().toInstant();
+                verificationKeys.putIfAbsent(jwk.getId(), new VerificationKey(publicKey, json, expiresAt));
+            }
+        } catch (ExpiredJwtException ex) {
+            // Expired since the range query picked it; there is nothing left to trust.
+        } catch (JwtException | IllegalArgumentException ex) {
+            // OWASP A08: a key not signed with the shared secret came from someone with only cache access.
+            log.warn("security_event=jwt_key_rejected reason={}", ex.getClass().getSimpleName());
+        }
+    }
+
+    /** A private key (or the HS256 secret) and the id written to the {@code kid} header of what it signs. */
+    public record SigningKey(String id, Key key) {
+    }
+
+    private record PendingKey(SigningKey signingKey, VerificationKey verificationKey) {
+    }
+
+    private record VerificationKey(PublicKey publicKey, String json, Instant expiresAt) {
+
+        boolean isExpired() {
+            return expiresAt.isBefore(Instant.now());
+        }
+    }
+}
@@ -4,19 +4,67 @@ package com.shivam.store.services;
 
 import com.shivam.store.config.JwtConfig;
 import com.shivam.store.entities.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@AllArgsConstructor
 public class JwtService {
     private final JwtConfig jwtConfig;
+    private final JwtKeyRing keyRing;
+    // Immutable and thread-safe, so every request verifies with this one instance and its key (or key ring).
+    private final JwtParser parser;
+    // SHA-256 of the token -> the token as verified. Only tokens that passed verification are cached, each until
+    // it expires, so a hit returns exactly what verifying again would; the raw token string is never kept.
+    private final Cache<String, Jwt> verifiedTokens;
+
+    public JwtService(JwtConfig jwtConfig, JwtKeyRing keyRing,
+                      @Value("${app.auth.token-cache.maximum-size:10000}") long tokenCacheMaximumSize) {
+        this.jwtConfig = jwtConfig;
+        this.keyRing = keyRing;
+        var parserBuilder = Jwts.parser();
+        if (keyRing.isSymmetric()) {
+            parserBuilder.verifyWith(jwtConfig.getSecretKey());
+        } else {
+            // Picks the public key by the token's kid, so tokens from earlier keys and other nodes still verify.
+            parserBuilder.keyLocator(keyRing);
+        }
+        this.parser = parserBuilder.build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaximumSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String digest, Jwt jwt, long currentTime) {
+                        var expiration = jwt.getExpiration();
+                        if (expiration == null) {
+                            return 0;
+                        }
+                        long remainingMillis = expiration.getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
 
     public Jwt generateAccessToken(User user) {
 
@@ -33,7 +81,7 @@ public class JwtService {
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + 1000 * jwtConfig.getGuestExpiration()))
                 .build();
-        return new Jwt(jwtConfig.getSecretKey(), claims);
+        return new Jwt(keyRing.signingKey(), claims);
     }
 
 
@@ -47,13 +95,18 @@ public class JwtService {
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + 1000 * tokenExpiration))
                 .build();
-        return new Jwt(jwtConfig.getSecretKey(), claims);
+        return new Jwt(keyRing.signingKey(), claims);
     }
 
     public Jwt parseToken(String token) {
         try {
-            var claims = getClaims(token);
-            return new Jwt(jwtConfig.getSecretKey(),  claims);
+            var digest = TokenDigest.sha256Hex(token);
+            var verified = verifiedTokens.getIfPresent(digest);
+            if (verified == null) {
+                verified = new Jwt(keyRing.signingKey(), getClaims(token));
+                verifiedTokens.put(digest, verified);
+            }
+            return verified;
         }  catch (RuntimeException e) {
             return null;
         }
@@ -61,11 +114,7 @@ public class JwtService {
 
 
     public Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(jwtConfig.getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
 }
@@ -28,7 +28,7 @@ public class OrderService {
         var order = orderRepository.getOrderWithItems(orderId).orElseThrow(OrderNotFoundException::new);
 
         var user = authService.getUser();
-        if(!order.isPlacedBy(user)) {
+        if(!order.isPlacedBy(user.id())) {
             throw new IncorrectUserException();
         }
         return orderMapper.toDto(order);
@@ -40,7 +40,7 @@ public class OrderService {
             return;
         }
         var user = authService.getUser();
-        if (!order.isPlacedBy(user)) {
+        if (!order.isPlacedBy(user.id())) {
             throw new IncorrectUserException();
         }
 
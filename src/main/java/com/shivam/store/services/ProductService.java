@@ -1,19 +1,33 @@
 package com.shivam.store.services;
 
+import com.shivam.store.cache.BatchCaches;
 import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.dtos.ProductPageDto;
 import com.shivam.store.dtos.RegisterProductRequest;
+import com.shivam.store.entities.Product;
 import com.shivam.store.exceptions.ProductNotFoundException;
 import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.products.CatalogSnapshot;
+import com.shivam.store.products.ProductChangedEvent;
+import com.shivam.store.products.ProductRevisions;
+import com.shivam.store.products.ProductSearchIndex;
 import com.shivam.store.repositories.CategoryRepository;
 import com.shivam.store.repositories.ProductRepository;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -22,33 +36,103 @@ public class ProductService {
 
     public static final String PRODUCTS_CACHE = "products";
     public static final String PRODUCT_BY_ID_CACHE = "productById";
+    public static final String PRODUCT_PAGES_CACHE = "productPages";
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int MAX_SEARCH_LIMIT = 50;
+    public static final int MAX_BATCH_SIZE = 100;
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductRevisions productRevisions;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProductService(ProductRepository productRepository,
                           CategoryRepository categoryRepository,
-                          ProductMapper productMapper) {
+                          ProductMapper productMapper,
+                          ProductSearchIndex productSearchIndex,
+                          ProductRevisions productRevisions,
+                          CatalogSnapshot catalogSnapshot,
+                          CacheManager cacheManager,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.productMapper = productMapper;
+        this.productSearchIndex = productSearchIndex;
+        this.productRevisions = productRevisions;
+        this.catalogSnapshot = catalogSnapshot;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
     }
 
-    @Cacheable(cacheNames = PRODUCTS_CACHE, key = "T(java.util.Objects).toString(#categoryId, 'all')")
+    // Keyed by the revision the caller validated against, so a list is only ever served under the ETag of the
+    // revision it was loaded at. A write moves every node to fresh lists at once, without evicting any.
+    @Cacheable(cacheNames = PRODUCTS_CACHE,
+            key = "T(java.util.Objects).toString(#categoryId, 'all') + ':' + #revision.value()",
+            sync = true)
     @Transactional(readOnly = true)
-    public List<ProductDto> getProducts(Byte categoryId) {
+    public List<ProductDto> getProducts(Byte categoryId, ProductRevisions.Revision revision) {
         if (categoryId != null) {
-            return productRepository.findByCategory_Id(categoryId).stream()
+            return productRepository.findByCategory_IdOrderByIdAsc(categoryId).stream()
                     .map(productMapper::toDto)
                     .collect(Collectors.toCollection(ArrayList::new));
         }
-        return productRepository.findAll().stream()
+        return productRepository.findAllByOrderByIdAsc().stream()
                 .map(productMapper::toDto)
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    @Cacheable(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id", unless = "#result == null")
+    // The category revision is part of the key, so a write moves readers to fresh pages without evicting any.
+    @Cacheable(cacheNames = PRODUCT_PAGES_CACHE,
+            key = "T(java.util.Objects).toString(#categoryId, 'all') + ':' + @productRevisions.categoryValue(#categoryId)"
+                    + " + ':' + T(java.util.Objects).toString(#after, '0') + ':' + #limit",
+            sync = true)
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductPage(Byte categoryId, Long after, int limit) {
+        long cursor = after != null ? after : 0L;
+        // Fetch one extra row to learn whether another page exists without a COUNT query.
+        var window = Limit.of(limit + 1);
+        var products = categoryId != null
+                ? productRepository.findByCategory_IdAndIdGreaterThanOrderByIdAsc(categoryId, cursor, window)
+                : productRepository.findByIdGreaterThanOrderByIdAsc(cursor, window);
+
+        var items = products.stream()
+                .limit(limit)
+                .map(productMapper::toDto)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Long nextCursor = products.size() > limit ? items.get(items.size() - 1).getId() : null;
+        return new ProductPageDto(items, nextCursor);
+    }
+
+    /** Pre-encoded {@link #getProducts} body, or null when it cannot be validated against the current revision. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CatalogSnapshot.Snapshot getCatalogSnapshot(Byte categoryId, ProductRevisions.Revision revision) {
+        return catalogSnapshot.get(categoryId, revision);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductDto> searchProducts(String query, int limit) {
+        return productSearchIndex.search(query, limit);
+    }
+
+    // Revisions are bumped around the commit by ProductRevisions, from the events published below.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ProductRevisions.Revision getCatalogRevision(Byte categoryId) {
+        return productRevisions.category(categoryId);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ProductRevisions.Revision getProductRevision(long id) {
+        return productRevisions.product(id);
+    }
+
+    // sync = true: concurrent misses for one key are coalesced into a single load; unknown ids throw, so nothing is cached.
+    @Cacheable(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id", sync = true)
     @Transactional(readOnly = true)
     public ProductDto getProduct(Long id) {
         return productRepository.findById(id)
@@ -56,36 +140,72 @@ public class ProductService {
                 .orElseThrow(ProductNotFoundException::new);
     }
 
-    @Caching(
-            evict = @CacheEvict(cacheNames = PRODUCTS_CACHE, allEntries = true),
-            put = @CachePut(cacheNames = PRODUCT_BY_ID_CACHE, key = "#result.id", condition = "#result != null")
-    )
+    /**
+     * Resolves many products with one multi-get against {@code productById} and one query for the misses,
+     * which are then written back in a single batch. Results follow the order of {@code ids}; unknown ids
+     * are skipped.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductDto> getProductsByIds(Collection<Long> ids) {
+        var uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " ids per request");
+        }
+        var cache = cacheManager.getCache(PRODUCT_BY_ID_CACHE);
+        Map<Object, Object> cached = cache != null ? BatchCaches.getAll(cache, uniqueIds) : Map.of();
+
+        var missingIds = uniqueIds.stream().filter(id -> !cached.containsKey(id)).toList();
+        Map<Long, ProductDto> loaded = new HashMap<>();
+        if (!missingIds.isEmpty()) {
+            productRepository.findAllById(missingIds)
+                    .forEach(product -> loaded.put(product.getId(), productMapper.toDto(product)));
+            if (cache != null) {
+                BatchCaches.putAll(cache, loaded);
+            }
+        }
+
+        var products = new ArrayList<ProductDto>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            var product = cached.containsKey(id) ? (ProductDto) cached.get(id) : loaded.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Product lists and pages are keyed by revision, so the bumps ProductRevisions makes for this event retire them.
+    @CachePut(cacheNames = PRODUCT_BY_ID_CACHE, key = "#result.id", condition = "#result != null")
     public ProductDto createProduct(RegisterProductRequest request) {
         var category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid category id: " + request.getCategoryId()));
         var product = productMapper.toEntity(request);
         product.setCategory(category);
         productRepository.save(product);
-        return productMapper.toDto(product);
+        var productDto = productMapper.toDto(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(productDto));
+        return productDto;
     }
 
-    @Caching(
-            evict = @CacheEvict(cacheNames = PRODUCTS_CACHE, allEntries = true),
-            put = @CachePut(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id", condition = "#result != null")
-    )
+    @CachePut(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id", condition = "#result != null")
     public ProductDto updateProduct(long id, ProductDto productDto) {
         var product = productRepository.findById(id).orElseThrow(ProductNotFoundException::new);
+        var previousCategoryId = categoryIdOf(product);
         productMapper.updateProduct(productDto, product);
         productRepository.save(product);
-        return productMapper.toDto(product);
+        var updated = productMapper.toDto(product);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(previousCategoryId, updated));
+        return updated;
     }
 
-    @Caching(evict = {
-            @CacheEvict(cacheNames = PRODUCTS_CACHE, allEntries = true),
-            @CacheEvict(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id")
-    })
+    @CacheEvict(cacheNames = PRODUCT_BY_ID_CACHE, key = "#id")
     public void deleteProduct(long id) {
         var product = productRepository.findById(id).orElseThrow(ProductNotFoundException::new);
         productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id, categoryIdOf(product)));
+    }
+
+    private static Byte categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
     }
 }
@@ -0,0 +1,121 @@
+package db.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The guest token hashing steps shared by V12 and V13. Like the migrations themselves this must never change once
+ * applied: it deliberately depends on nothing from the application, so the history it wrote stays reproducible.
+ */
+final class GuestCartTokens {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private GuestCartTokens() {
+    }
+
+    /** Fills guest_token_hash for every guest cart that has a raw token but no hash yet. */
+    static void backfill(Connection connection) throws SQLException {
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement("UPDATE carts SET guest_token_hash = ? WHERE id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery(
+                    "SELECT id, guest_token FROM carts WHERE guest_token IS NOT NULL AND guest_token_hash IS NULL")) {
+                int pending = 0;
+                while (rows.next()) {
+                    update.setString(1, sha256Hex(rows.getString(2)));
+                    update.setObject(2, rows.getObject(1));
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
+    }
+
+    /**
+     * Leaves one cart per guest token hash. guest_token was never unique, so a token can own several carts; the
+     * most recent, most written-to one keeps the token and the others' items are merged into it (quantities of the
+     * same product add up, as in a login merge) before they are deleted.
+     */
+    static void deduplicate(Connection connection) throws SQLException {
+        List<String> duplicated = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT guest_token_hash FROM carts WHERE guest_token_hash IS NOT NULL "
+                     + "GROUP BY guest_token_hash HAVING COUNT(*) > 1")) {
+            while (rows.next()) {
+                duplicated.add(rows.getString(1));
+            }
+        }
+        for (String hash : duplicated) {
+            List<UUID> carts = cartsByPreference(connection, hash);
+            UUID survivor = carts.get(0);
+            for (UUID duplicate : carts.subList(1, carts.size())) {
+                mergeInto(connection, duplicate, survivor);
+            }
+        }
+    }
+
+    private static List<UUID> cartsByPreference(Connection connection, String hash) throws SQLException {
+        List<UUID> carts = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id FROM carts WHERE guest_token_hash = ? "
+                + "ORDER BY date_created DESC, version DESC, id")) {
+            select.setString(1, hash);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    carts.add(rows.getObject(1, UUID.class));
+                }
+            }
+        }
+        return carts;
+    }
+
+    private static void mergeInto(Connection connection, UUID source, UUID target) throws SQLException {
+        // Products both carts hold: add the quantities onto the target's line.
+        execute(connection, "UPDATE cart_items SET quantity = quantity + "
+                + "(SELECT s.quantity FROM cart_items s WHERE s.cart_id = ? AND s.product_id = cart_items.product_id) "
+                + "WHERE cart_id = ? AND product_id IN (SELECT product_id FROM cart_items WHERE cart_id = ?)",
+                source, target, source);
+        // Products only the source holds: move the lines over.
+        execute(connection, "UPDATE cart_items SET cart_id = ? "
+                + "WHERE cart_id = ? AND product_id NOT IN (SELECT product_id FROM cart_items WHERE cart_id = ?)",
+                target, source, target);
+        // The remaining source lines go with the cart through ON DELETE CASCADE.
+        execute(connection, "DELETE FROM carts WHERE id = ?", source);
+        // The target's contents changed, so its ETag has to.
+        execute(connection, "UPDATE carts SET version = version + 1 WHERE id = ?", target);
+    }
+
+    private static void execute(Connection connection, String sql, UUID... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    static String sha256Hex(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package db.migration;
+
+import java.sql.Statement;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Expand step of keying guest carts by a SHA-256 of the guest token instead of the token itself. The digest is
+ * computed in Java so Postgres and H2 get identical keys without a database-specific hash function.
+ *
+ * <p>guest_token and its index stay, so nodes still on the previous release keep working during a rolling
+ * deploy; V13 drops them once none are left.
+ */
+public class V12__hash_guest_cart_tokens extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        var connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE carts ADD COLUMN guest_token_hash VARCHAR(64)");
+        }
+
+        GuestCartTokens.backfill(connection);
+        // guest_token was never unique; the index below would fail on the duplicates.
+        GuestCartTokens.deduplicate(connection);
+
+        try (Statement statement = connection.createStatement()) {
+            // NULLs do not collide, so user carts are unaffected by the unique index.
+            statement.execute("CREATE UNIQUE INDEX uq_carts_guest_token_hash ON carts(guest_token_hash)");
+            // The guest cart reaper's index for the new column; the old one serves old nodes until V13.
+            statement.execute("CREATE INDEX idx_carts_guest_token_hash_date_created ON carts(guest_token_hash, date_created)");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package db.migration;
+
+import java.sql.Statement;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Contract step after V12: drops the raw guest token. Must only run once no node of the release before V12 is
+ * left, which is what {@code spring.flyway.target} holds it back for.
+ *
+ * <p>Guest carts those nodes created during the rollout carry only the raw token, so they are hashed (and merged
+ * with any cart a new node created for the same guest meanwhile) before the column goes.
+ */
+public class V13__drop_guest_cart_tokens extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        var connection = context.getConnection();
+        // Hashing those carts can clash with a new node's cart for the same guest, so the unique index comes off
+        // until they are merged.
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP INDEX uq_carts_guest_token_hash");
+        }
+        GuestCartTokens.backfill(connection);
+        GuestCartTokens.deduplicate(connection);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE UNIQUE INDEX uq_carts_guest_token_hash ON carts(guest_token_hash)");
+            statement.execute("DROP INDEX idx_carts_guest_token_date_created");
+            statement.execute("ALTER TABLE carts DROP COLUMN guest_token");
+        }
+    }
+}
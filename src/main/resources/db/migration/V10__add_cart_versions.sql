@@ -0,0 +1,4 @@
+-- Optimistic locking: every cart write bumps carts.version, which clients see as the cart's ETag.
+ALTER TABLE carts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE cart_items ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
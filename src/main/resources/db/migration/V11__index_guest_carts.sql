@@ -0,0 +1,5 @@
+-- Guest-token lookups use the leading column; the guest cart reaper filters guest carts by age.
+CREATE INDEX idx_carts_guest_token_date_created ON carts(guest_token, date_created);
+
+-- Superseded by the composite index above.
+DROP INDEX idx_carts_guest_token;
@@ -0,0 +1,74 @@
+package com.shivam.store.benchmarks;
+
+import com.shivam.store.config.CacheConfig;
+import com.shivam.store.dtos.ProductDto;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Encode/decode cost of the Redis cache codecs for a category list. Bytes per entry are printed at setup.
+ * Run {@link #main} from the IDE, or: {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main CacheCodec}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    @Param({"json", "smile"})
+    private String codec;
+
+    @Param({"1", "24", "100"})
+    private int products;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = CacheConfig.cacheValueSerializer(codec);
+        List<ProductDto> list = new ArrayList<>(products);
+        for (long id = 1; id <= products; id++) {
+            list.add(new ProductDto(id, "Vinyl record #" + id, "Limited pressing, 180g, gatefold sleeve #" + id,
+                    new BigDecimal("24.99").add(BigDecimal.valueOf(id)), (byte) (id % 8 + 1)));
+        }
+        value = products == 1 ? list.getFirst() : list;
+        encoded = serializer.serialize(value);
+        System.out.printf("%n%s products=%d bytes=%d bytesPerProduct=%d%n",
+                codec, products, encoded.length, encoded.length / products);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CacheCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
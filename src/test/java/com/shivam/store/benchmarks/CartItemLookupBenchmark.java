@@ -0,0 +1,100 @@
+package com.shivam.store.benchmarks;
+
+import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.CartItem;
+import com.shivam.store.entities.Product;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Looking up every item of a cart by product id, the access pattern of a guest-to-user cart merge, through
+ * {@link Cart#getItem} versus the linear scan it replaced. The merge benchmark folds a guest cart of the same
+ * size into a fresh copy of the user cart.
+ * Run {@link #main} from the IDE, or: {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main CartItemLookup}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartItemLookupBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int items;
+
+    private Cart cart;
+    private Cart guestCart;
+    private Product[] products;
+    private Cart mergeTarget;
+
+    @Setup
+    public void setUp() {
+        products = new Product[items];
+        cart = new Cart();
+        guestCart = new Cart();
+        for (int i = 0; i < items; i++) {
+            var product = new Product();
+            product.setId(1_000L + i * 7L);
+            product.setPrice(new BigDecimal("24.99"));
+            products[i] = product;
+            cart.addItem(product);
+            guestCart.addItem(product);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void freshMergeTarget() {
+        mergeTarget = new Cart();
+        for (Product product : products) {
+            mergeTarget.addItem(product);
+        }
+    }
+
+    @Benchmark
+    public void indexedLookup(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(cart.getItem(product.getId()));
+        }
+    }
+
+    @Benchmark
+    public void linearScanLookup(Blackhole blackhole) {
+        for (Product product : products) {
+            Long productId = product.getId();
+            blackhole.consume(cart.getCartItems().stream()
+                    .filter(cartItem -> cartItem.getProduct().getId().equals(productId))
+                    .findFirst()
+                    .orElse(null));
+        }
+    }
+
+    @Benchmark
+    public Cart mergeGuestCart() {
+        for (CartItem guestItem : guestCart.getCartItems()) {
+            var existing = mergeTarget.getItem(guestItem.getProduct().getId());
+            existing.setQuantity(existing.getQuantity() + guestItem.getQuantity());
+        }
+        return mergeTarget;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CartItemLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.shivam.store.benchmarks;
+
+import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.CartItem;
+import com.shivam.store.entities.Product;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reading a cart's total and its items in display order, as {@code CartMapper.toDto} does, from the running
+ * subtotal and sorted view the cart maintains versus recomputing both from the item set on every read. The
+ * mutation benchmark changes one quantity before each read, the pattern of a cart write followed by its response.
+ * Run {@link #main} from the IDE, or: {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main CartTotals}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int items;
+
+    private Cart cart;
+    private CartItem changed;
+    private int quantity = 1;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        // Inserted in descending id order so the recomputed sort has real work to do.
+        for (int i = items; i > 0; i--) {
+            var product = new Product();
+            product.setId((long) i);
+            product.setPrice(BigDecimal.valueOf(499 + i * 13L, 2));
+            changed = cart.addItem(product);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal runningTotal() {
+        return cart.getTotalPrice();
+    }
+
+    @Benchmark
+    public BigDecimal recomputedTotal() {
+        return cart.getCartItems().stream()
+                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public List<CartItem> maintainedSortedItems() {
+        return cart.getSortedItems();
+    }
+
+    @Benchmark
+    public List<CartItem> resortedItems() {
+        return cart.getCartItems().stream()
+                .sorted(Comparator.comparing(item -> item.getProduct().getId()))
+                .toList();
+    }
+
+    @Benchmark
+    public BigDecimal updateThenRunningTotal() {
+        quantity = quantity % 5 + 1;
+        changed.setQuantity(quantity);
+        return cart.getTotalPrice();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CartTotalsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
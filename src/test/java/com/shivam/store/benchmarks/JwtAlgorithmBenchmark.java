@@ -0,0 +1,74 @@
+package com.shivam.store.benchmarks;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+import com.shivam.store.services.JwtKeyRing;
+import com.shivam.store.services.JwtService;
+import io.jsonwebtoken.Claims;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Signing an access token and fully verifying one (bypassing the verified-token cache) through {@link JwtService}
+ * for each supported {@code spring.jwt.algorithm}. The asymmetric verify path includes the key lookup by kid.
+ * Run {@link #main} from the IDE, or: {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main JwtAlgorithm}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    @Param({"HS256", "ES256", "EDDSA"})
+    private JwtConfig.Algorithm algorithm;
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        var jwtConfig = new JwtConfig();
+        jwtConfig.setSecret("BenchmarkSecretKeyForJwt1234567890!!ABCD");
+        jwtConfig.setAccessExpiration(900);
+        jwtConfig.setRefreshExpiration(604800);
+        jwtConfig.setAlgorithm(algorithm);
+        jwtService = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig), 10_000);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("bench@example.com");
+        user.setRole(Role.USER);
+        token = jwtService.generateAccessToken(user).toString();
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateAccessToken(user).toString();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtService.getClaims(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAlgorithmBenchmark.class.getSimpleName()).build()).run();
+    }
+}
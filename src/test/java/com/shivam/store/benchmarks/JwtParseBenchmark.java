@@ -0,0 +1,85 @@
+package com.shivam.store.benchmarks;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+import com.shivam.store.services.Jwt;
+import com.shivam.store.services.JwtKeyRing;
+import com.shivam.store.services.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Verifying an access token the way every authenticated request does: a repeat token answered from
+ * {@link JwtService}'s verified-token cache, a full verification through the parser and key it builds once
+ * ({@link JwtService#getClaims}, which bypasses the cache), and the old path that derived the key and built a parser per token.
+ * Runs on four threads, since the shared parser and cache are meant to be hit concurrently.
+ * Run {@link #main} from the IDE, or: {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main JwtParse}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "BenchmarkSecretKeyForJwt1234567890!!ABCD";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        var jwtConfig = new JwtConfig();
+        jwtConfig.setSecret(SECRET);
+        jwtConfig.setAccessExpiration(900);
+        jwtService = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig), 10_000);
+
+        var user = new User();
+        user.setId(42L);
+        user.setEmail("bench@example.com");
+        user.setRole(Role.USER);
+        token = jwtService.generateAccessToken(user).toString();
+    }
+
+    @Benchmark
+    public Jwt cachedVerification() {
+        return jwtService.parseToken(token);
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return jwtService.getClaims(token);
+    }
+
+    @Benchmark
+    public Claims parserPerToken() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtParseBenchmark.class.getSimpleName()).build()).run();
+    }
+}
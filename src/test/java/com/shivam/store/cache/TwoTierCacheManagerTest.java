@@ -0,0 +1,131 @@
+package com.shivam.store.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class TwoTierCacheManagerTest {
+
+    @Mock
+    private RedisCacheManager redisCacheManager;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private ConcurrentMapCache remote;
+    private TwoTierCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("productById");
+        when(redisCacheManager.getCache("productById")).thenReturn(remote);
+        cacheManager = new TwoTierCacheManager(redisCacheManager, redisTemplate, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_servesFromLocalTierAfterFirstRemoteHit() {
+        remote.put(1L, "mouse");
+        var cache = cacheManager.getCache("productById");
+
+        assertThat(cache.get(1L).get()).isEqualTo("mouse");
+        remote.evict(1L);
+
+        assertThat(cache.get(1L).get()).isEqualTo("mouse");
+    }
+
+    @Test
+    void put_broadcastsEvictionAndRemoteMessagesDropLocalCopies() {
+        var cache = cacheManager.getCache("productById");
+        cache.put(1L, "mouse");
+
+        var message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(TwoTierCacheManager.INVALIDATION_CHANNEL), message.capture());
+
+        // Our own broadcast is ignored...
+        cacheManager.onMessage(toMessage(message.getValue()), null);
+        remote.evict(1L);
+        assertThat(cache.get(1L)).isNotNull();
+
+        // ...but the same eviction from another node drops the L1 entry.
+        cacheManager.onMessage(toMessage(message.getValue().replaceFirst("^[^\\n]+", "other-node")), null);
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void registeredLocalCache_receivesOtherNodesEvictionsOnTheSameChannel() {
+        var cache = cacheManager.getCache("productById");
+        cache.put(1L, "mouse");
+        List<String> evicted = new ArrayList<>();
+        cacheManager.registerLocalCache("auth:users", evicted::add);
+
+        cacheManager.broadcastEvict("auth:users", "1");
+
+        var messages = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(2)).convertAndSend(eq(TwoTierCacheManager.INVALIDATION_CHANNEL), messages.capture());
+        var eviction = messages.getValue();
+        cacheManager.onMessage(toMessage(eviction), null);
+        assertThat(evicted).isEmpty();
+
+        cacheManager.onMessage(toMessage(eviction.replaceFirst("^[^\\n]+", "other-node")), null);
+        assertThat(evicted).containsExactly("1");
+        remote.evict(1L);
+        assertThat(cache.get(1L)).isNotNull();
+    }
+
+    @Test
+    void getWithLoader_clearedEntriesAreServedStaleWhileOneRefreshRuns() throws Exception {
+        var cache = cacheManager.getCache("productById");
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return "mouse-" + loads.get();
+        };
+        cache.put(1L, "mouse");
+        cache.clear();
+
+        // Both readers get the stale copy immediately; only one refresh is started.
+        assertThat(cache.get(1L, loader)).isEqualTo("mouse");
+        assertThat(cache.get(1L, loader)).isEqualTo("mouse");
+        release.countDown();
+
+        await(() -> "mouse-1".equals(cache.get(1L, loader)));
+        assertThat(loads).hasValue(1);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private DefaultMessage toMessage(String body) {
+        return new DefaultMessage(TwoTierCacheManager.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
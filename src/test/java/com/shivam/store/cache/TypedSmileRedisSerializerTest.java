@@ -0,0 +1,47 @@
+package com.shivam.store.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.dtos.ProductPageDto;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+class TypedSmileRedisSerializerTest {
+
+    private final TypedSmileRedisSerializer serializer = TypedSmileRedisSerializer.builder()
+            .register(1, ProductDto.class)
+            .registerList(2, ProductDto.class)
+            .register(3, ProductPageDto.class)
+            .build();
+
+    @Test
+    void roundTripsRegisteredTypes() {
+        ProductDto mouse = new ProductDto(1L, "Mouse", "Wireless mouse", new BigDecimal("19.99"), (byte) 1);
+        ProductPageDto page = new ProductPageDto(List.of(mouse), 1L);
+
+        ProductDto product = (ProductDto) serializer.deserialize(serializer.serialize(mouse));
+        @SuppressWarnings("unchecked")
+        List<ProductDto> list = (List<ProductDto>) serializer.deserialize(serializer.serialize(List.of(mouse)));
+        ProductPageDto decodedPage = (ProductPageDto) serializer.deserialize(serializer.serialize(page));
+
+        assertThat(product).usingRecursiveComparison().isEqualTo(mouse);
+        assertThat(list).singleElement().usingRecursiveComparison().isEqualTo(mouse);
+        assertThat(decodedPage).usingRecursiveComparison().isEqualTo(page);
+    }
+
+    @Test
+    void rejectsUnregisteredTypesAndUnknownTypeIds() {
+        assertThatThrownBy(() -> serializer.serialize(Map.of("k", "v")))
+                .isInstanceOf(SerializationException.class);
+
+        byte[] bytes = serializer.serialize(new ProductDto());
+        bytes[0] = 42;
+        assertThatThrownBy(() -> serializer.deserialize(bytes))
+                .isInstanceOf(SerializationException.class);
+    }
+}
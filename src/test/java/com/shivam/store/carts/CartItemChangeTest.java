@@ -0,0 +1,35 @@
+package com.shivam.store.carts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CartItemChangeTest {
+
+    @Test
+    void coalesce_keepsOneNetChangePerProduct() {
+        var net = CartItemChange.coalesce(List.of(
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 2),
+                new CartItemChange(2L, CartItemChange.Kind.REMOVE, 1),
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 3),
+                new CartItemChange(2L, CartItemChange.Kind.ADD, 1)));
+
+        assertThat(net).containsExactly(
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 5),
+                new CartItemChange(2L, CartItemChange.Kind.SET, 1));
+    }
+
+    @Test
+    void coalesce_rejectsBatchesThatSumPastTheLineLimit() {
+        assertThatThrownBy(() -> CartItemChange.coalesce(List.of(
+                new CartItemChange(1L, CartItemChange.Kind.SET, 4),
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 2))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CartItemChange.coalesce(List.of(
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 5),
+                new CartItemChange(1L, CartItemChange.Kind.ADD, 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
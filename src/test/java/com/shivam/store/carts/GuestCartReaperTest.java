@@ -0,0 +1,112 @@
+package com.shivam.store.carts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shivam.store.config.FlywayMigrationConfig;
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.Product;
+import com.shivam.store.entities.User;
+import com.shivam.store.services.TokenDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@ContextConfiguration(classes = FlywayMigrationConfig.class)
+class GuestCartReaperTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GuestCartReaper reaper;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        var jwtConfig = new JwtConfig();
+        jwtConfig.setGuestExpiration(3600);
+        reaper = new GuestCartReaper(jdbcTemplate, transactionManager, meterRegistry, jwtConfig, 2, 10, Duration.ZERO, Duration.ofMinutes(10));
+
+        product = new Product();
+        product.setName("Stylus");
+        product.setDescription("Replacement needle");
+        product.setPrice(new BigDecimal("12.50"));
+        entityManager.persist(product);
+    }
+
+    @Test
+    void reap_deletesExpiredGuestCartsInBatches() {
+        var expired = new UUID[] {guestCart("old-1", 3), guestCart("old-2", 3), guestCart("old-3", 2)};
+        var fresh = guestCart("fresh", 0);
+        var userCart = guestCart("adopted", 5);
+        var user = new User();
+        user.setName("Owner");
+        user.setEmail("owner@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE carts SET user_id = ? WHERE id = ?", user.getId(), userCart);
+
+        reaper.reap();
+
+        for (UUID id : expired) {
+            assertThat(cartExists(id)).isFalse();
+        }
+        assertThat(cartExists(fresh)).isTrue();
+        assertThat(cartExists(userCart)).isTrue();
+        assertThat(reclaimed("carts")).isEqualTo(3);
+        assertThat(reclaimed("cart_items")).isEqualTo(3);
+    }
+
+    @Test
+    void reapBatch_stopsAtBatchSize() {
+        guestCart("old-1", 3);
+        guestCart("old-2", 3);
+        guestCart("old-3", 3);
+
+        assertThat(reaper.reapBatch(LocalDate.now().minusDays(1))).isEqualTo(2);
+        assertThat(reaper.reapBatch(LocalDate.now().minusDays(1))).isEqualTo(1);
+        assertThat(reaper.reapBatch(LocalDate.now().minusDays(1))).isZero();
+    }
+
+    private UUID guestCart(String guestToken, int daysOld) {
+        var cart = new Cart();
+        cart.setGuestTokenHash(TokenDigest.sha256Hex(guestToken));
+        entityManager.persist(cart);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE carts SET date_created = ? WHERE id = ?",
+                Date.valueOf(LocalDate.now().minusDays(daysOld)), cart.getId());
+        jdbcTemplate.update("INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, 1)",
+                cart.getId(), product.getId());
+        return cart.getId();
+    }
+
+    private boolean cartExists(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE id = ?", Integer.class, id) > 0;
+    }
+
+    private double reclaimed(String table) {
+        return meterRegistry.get("carts.reaper.reclaimed").tag("table", table).counter().count();
+    }
+}
@@ -0,0 +1,72 @@
+package com.shivam.store.carts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.exceptions.CartVersionMismatchException;
+import com.shivam.store.repositories.CartRepository;
+import com.shivam.store.repositories.ProductRepository;
+import com.shivam.store.repositories.UserRepository;
+import com.shivam.store.services.ProductService;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class RedisCartStoreTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private CartRepository cartRepository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RedisCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        var jwtConfig = new JwtConfig();
+        jwtConfig.setGuestExpiration(3600);
+        store = new RedisCartStore(redisTemplate, cartRepository, productRepository, userRepository, productService,
+                transactionManager, jwtConfig, Duration.ofHours(24), 200);
+    }
+
+    @Test
+    void clear_passesIfMatchToTheScriptAndReturnsTheNewVersion() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(0L, 5L));
+
+        assertThat(store.clear(CartOwner.guest("guest-1"), 4L)).isEqualTo(5L);
+
+        var args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), args.capture());
+        assertThat(args.getValue()).containsExactly("3600", "0", "", "4");
+    }
+
+    @Test
+    void clear_staleIfMatch_throwsVersionMismatch() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(-3L, 5L));
+
+        assertThatThrownBy(() -> store.clear(CartOwner.guest("guest-1"), 4L))
+                .isInstanceOf(CartVersionMismatchException.class);
+    }
+}
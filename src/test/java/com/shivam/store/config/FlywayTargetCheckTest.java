@@ -0,0 +1,32 @@
+package com.shivam.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+class FlywayTargetCheckTest {
+
+    @Test
+    void heldBack_listsTheMigrationsAboveAPinnedTarget() {
+        var pinned = flyway("12");
+        pinned.migrate();
+
+        assertThat(FlywayTargetCheck.heldBack(pinned)).containsExactly("13");
+
+        var latest = flyway("latest");
+        latest.migrate();
+
+        assertThat(FlywayTargetCheck.heldBack(latest)).isEmpty();
+    }
+
+    private static Flyway flyway(String target) {
+        return Flyway.configure()
+                .dataSource("jdbc:h2:mem:flyway_target;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "")
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("uuid_fn", "RANDOM_UUID()"))
+                .target(target)
+                .load();
+    }
+}
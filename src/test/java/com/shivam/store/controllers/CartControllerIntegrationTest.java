@@ -1,6 +1,7 @@
 package com.shivam.store.controllers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -18,6 +19,8 @@ import com.shivam.store.repositories.CategoryRepository;
 import com.shivam.store.repositories.ProductRepository;
 import com.shivam.store.repositories.UserRepository;
 import com.shivam.store.services.JwtService;
+import com.shivam.store.services.TokenDigest;
+import jakarta.persistence.EntityManager;
 import jakarta.servlet.http.Cookie;
 import java.math.BigDecimal;
 import org.junit.jupiter.api.BeforeEach;
@@ -58,6 +61,8 @@ class CartControllerIntegrationTest {
     private UserRepository userRepository;
     @Autowired
     private JwtService jwtService;
+    @Autowired
+    private EntityManager entityManager;
 
     @BeforeEach
     void cleanDatabase() {
@@ -102,7 +107,7 @@ class CartControllerIntegrationTest {
 
         String guestToken = jwtService.generateGuestToken().toString();
         var cart = new Cart();
-        cart.setGuestToken(guestToken);
+        cart.setGuestTokenHash(TokenDigest.sha256Hex(guestToken));
         cart = cartRepository.save(cart);
 
         SecurityContextHolder.clearContext();
@@ -118,9 +123,60 @@ class CartControllerIntegrationTest {
                 .andExpect(jsonPath("$.product.id").value(product.getId()))
                 .andExpect(jsonPath("$.quantity").value(1));
 
+        // The item is written with SQL, so the cart cached in this test's persistence context is stale.
+        entityManager.clear();
         var updated = cartRepository.findById(cart.getId()).orElseThrow();
         assertThat(updated.getCartItems()).hasSize(1);
         assertThat(updated.getCartItems().iterator().next().getProduct().getId()).isEqualTo(product.getId());
     }
 
+    @Test
+    void patchCurrent_guestToken_appliesOperationsAndReturnsCart() throws Exception {
+        var category = new Category();
+        category.setName("Vinyl");
+        var first = new Product();
+        first.setName("Blue Train");
+        first.setDescription("LP");
+        first.setPrice(BigDecimal.TEN);
+        first.setCategory(category);
+        first = productRepository.save(first);
+        var second = new Product();
+        second.setName("Kind of Blue");
+        second.setDescription("LP");
+        second.setPrice(BigDecimal.ONE);
+        second.setCategory(first.getCategory());
+        second = productRepository.save(second);
+
+        String guestToken = jwtService.generateGuestToken().toString();
+        var cart = new Cart();
+        cart.setGuestTokenHash(TokenDigest.sha256Hex(guestToken));
+        cart.addItem(second);
+        cart = cartRepository.save(cart);
+        SecurityContextHolder.clearContext();
+
+        var body = """
+                {"operations": [
+                  {"op": "ADD", "productId": %d},
+                  {"op": "ADD", "productId": %d},
+                  {"op": "SET", "productId": %d, "quantity": 4},
+                  {"op": "REMOVE", "productId": %d}
+                ]}
+                """.formatted(first.getId(), first.getId(), first.getId(), second.getId());
+
+        mockMvc.perform(patch("/carts/current")
+                        .cookie(new Cookie("guestToken", guestToken))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cart.1\""))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].product.id").value(first.getId()))
+                .andExpect(jsonPath("$.items[0].quantity").value(4));
+
+        entityManager.clear();
+        var updated = cartRepository.findById(cart.getId()).orElseThrow();
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(updated.getCartItems()).singleElement()
+                .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(4));
+    }
 }
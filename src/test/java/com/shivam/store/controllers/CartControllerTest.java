@@ -2,6 +2,8 @@ package com.shivam.store.controllers;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -84,16 +86,34 @@ class CartControllerTest {
         cartItemDto.setProduct(productDto);
         cartItemDto.setQuantity(2);
 
-        when(cartService.addProductToCurrentCart(any(), any())).thenReturn(cartItemDto);
+        cartItemDto.setCartVersion(4L);
+
+        when(cartService.addProductToCurrentCart(any(), any(), any())).thenReturn(cartItemDto);
 
         mockMvc.perform(post("/carts/current/items")
                         .contentType("application/json")
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cart.4\""))
                 .andExpect(jsonPath("$.product.id").value(request.getId()))
                 .andExpect(jsonPath("$.quantity").value(2));
 
-        verify(cartService).addProductToCurrentCart(any(), any());
+        verify(cartService).addProductToCurrentCart(eq(7L), any(), isNull());
+    }
+
+    @Test
+    void addProduct_passesIfMatchVersionToService() throws Exception {
+        var request = new CartItemRequestDto();
+        request.setId(7L);
+        when(cartService.addProductToCurrentCart(any(), any(), any())).thenReturn(new CartItemDto());
+
+        mockMvc.perform(post("/carts/current/items")
+                        .header("If-Match", "\"cart.3\"")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        verify(cartService).addProductToCurrentCart(eq(7L), any(), eq(3L));
     }
 
     private static class FixedCartOwnerArgumentResolver implements HandlerMethodArgumentResolver {
@@ -0,0 +1,147 @@
+package com.shivam.store.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.shivam.store.config.FlywayMigrationConfig;
+import com.shivam.store.entities.Category;
+import com.shivam.store.entities.Product;
+import com.shivam.store.repositories.CategoryRepository;
+import com.shivam.store.repositories.ProductRepository;
+import com.shivam.store.services.ProductService;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Not @Transactional: revisions are bumped after commit, and batch lookups run outside the caller's transaction.
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@ContextConfiguration(classes = FlywayMigrationConfig.class)
+class ProductControllerConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Conditional");
+
+        product = new Product();
+        product.setName("Turntable");
+        product.setDescription("Belt drive");
+        product.setPrice(BigDecimal.TEN);
+        product.setCategory(category);
+        product = productRepository.save(product);
+        category = product.getCategory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteById(product.getId());
+        categoryRepository.deleteById(category.getId());
+        cacheManager.getCache(ProductService.PRODUCT_BY_ID_CACHE).evict(product.getId());
+    }
+
+    @Test
+    void getProduct_returns304ForCurrentEtagAndNewEtagAfterUpdate() throws Exception {
+        String etag = mockMvc.perform(get("/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get("/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": %d, "name": "Turntable II", "description": "Direct drive",
+                                 "price": 12.50, "categoryId": %d}
+                                """.formatted(product.getId(), category.getId())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void getProductsByIds_returnsKnownProductsInRequestOrderAndCachesThem() throws Exception {
+        mockMvc.perform(get("/products").param("ids", "999999," + product.getId() + "," + product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Turntable"));
+
+        assertThat(cacheManager.getCache(ProductService.PRODUCT_BY_ID_CACHE).get(product.getId())).isNotNull();
+    }
+
+    @Test
+    void getProducts_returns304ForCurrentCategoryEtag() throws Exception {
+        String etag = mockMvc.perform(get("/products").param("categoryId", category.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products").param("categoryId", category.getId().toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getProducts_afterWrite_servesTheNewListUnderTheNewEtag() throws Exception {
+        var categoryId = category.getId().toString();
+        String etag = mockMvc.perform(get("/products").param("categoryId", categoryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Turntable"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id": %d, "name": "Turntable II", "description": "Direct drive",
+                                 "price": 12.50, "categoryId": %d}
+                                """.formatted(product.getId(), category.getId())))
+                .andExpect(status().isOk());
+
+        String newEtag = mockMvc.perform(get("/products").param("categoryId", categoryId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$[0].name").value("Turntable II"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products").param("categoryId", categoryId).header(HttpHeaders.IF_NONE_MATCH, newEtag))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,75 @@
+package com.shivam.store.entities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CartItemIndexTest {
+
+    @Test
+    void randomPutsAndRemoves_matchHashMap() {
+        var index = CartItemIndex.of(List.of());
+        Map<Long, CartItem> expected = new HashMap<>();
+        var random = new Random(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            // A small key space forces long probe runs, collisions and backward shifts on removal.
+            long productId = random.nextInt(64) - 8;
+            if (random.nextBoolean()) {
+                var item = item(productId);
+                index.put(productId, item);
+                expected.put(productId, item);
+            } else {
+                index.remove(productId);
+                expected.remove(productId);
+            }
+            assertThat(index.size()).isEqualTo(expected.size());
+        }
+        for (long productId = -8; productId < 56; productId++) {
+            assertThat(index.get(productId)).isSameAs(expected.get(productId));
+        }
+    }
+
+    @Test
+    void cart_findsItemsAfterHibernateStyleCollectionChanges() {
+        var cart = new Cart();
+        var first = cart.addItem(product(1L));
+        cart.addItem(product(2L));
+
+        cart.setCartItems(new LinkedHashSet<>(List.of(first, cart.getItem(2L), itemFor(cart, 3L))));
+        assertThat(cart.getItem(3L)).isNotNull();
+
+        cart.removeItemsIf(item -> item.getProduct().getId() == 2L);
+        assertThat(cart.getItem(2L)).isNull();
+
+        cart.setCartItems(new LinkedHashSet<>(List.of(first)));
+        assertThat(cart.getItem(3L)).isNull();
+        assertThat(cart.getItem(1L)).isSameAs(first);
+    }
+
+    private static CartItem item(long productId) {
+        var item = new CartItem();
+        item.setProduct(product(productId));
+        return item;
+    }
+
+    private static CartItem itemFor(Cart cart, long productId) {
+        var item = item(productId);
+        item.setCart(cart);
+        item.setQuantity(1);
+        return item;
+    }
+
+    private static Product product(long id) {
+        var product = new Product();
+        product.setId(id);
+        product.setPrice(BigDecimal.ONE);
+        return product;
+    }
+}
@@ -0,0 +1,86 @@
+package com.shivam.store.entities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CartTest {
+
+    @Test
+    void subtotalAndSortedItems_followEveryMutation() {
+        var cart = new Cart();
+        cart.addItem(product(30L, "4.50"));
+        cart.addItem(product(10L, "19.99"));
+        var middle = cart.addItem(product(20L, "0.05"));
+        cart.addItem(product(10L, "19.99"));
+
+        assertThat(cart.getSubtotalCents()).isEqualTo(450 + 2 * 1999 + 5);
+        assertThat(productIds(cart)).containsExactly(10L, 20L, 30L);
+
+        middle.setQuantity(4);
+        cart.removeItem(30L);
+        cart.removeItem(10L);
+
+        assertThat(cart.getSubtotalCents()).isEqualTo(1999 + 4 * 5);
+        assertThat(cart.getTotalPrice()).isEqualByComparingTo("20.19");
+        assertThat(productIds(cart)).containsExactly(10L, 20L);
+    }
+
+    @Test
+    void subtotal_isRebuiltWhenTheItemSetIsReplaced() {
+        var cart = new Cart();
+        var kept = cart.addItem(product(2L, "3.00"));
+        cart.addItem(product(1L, "7.00"));
+
+        cart.setCartItems(new LinkedHashSet<>(List.of(kept)));
+        kept.setQuantity(2);
+
+        assertThat(cart.getTotalPrice()).isEqualByComparingTo("6.00");
+        assertThat(productIds(cart)).containsExactly(2L);
+
+        cart.clear();
+        assertThat(cart.getSubtotalCents()).isZero();
+        assertThat(cart.getSortedItems()).isEmpty();
+    }
+
+    @Test
+    void derivedState_followsChangesThatKeepTheItemCount() {
+        var cart = new Cart();
+        var first = cart.addItem(product(1L, "3.00"));
+        var second = cart.addItem(product(2L, "7.00"));
+        assertThat(cart.getSubtotalCents()).isEqualTo(1000);
+
+        first.setProduct(product(3L, "5.00"));
+
+        assertThat(cart.getSubtotalCents()).isEqualTo(1200);
+        assertThat(productIds(cart)).containsExactly(2L, 3L);
+        assertThat(cart.getItem(3L)).isSameAs(first);
+        assertThat(cart.getItem(1L)).isNull();
+
+        var replacement = new CartItem();
+        replacement.setProduct(product(4L, "1.00"));
+        replacement.setQuantity(1);
+        replacement.setCart(cart);
+        cart.setCartItems(new LinkedHashSet<>(List.of(second, replacement)));
+
+        assertThat(cart.getSubtotalCents()).isEqualTo(800);
+        assertThat(productIds(cart)).containsExactly(2L, 4L);
+        assertThatThrownBy(() -> cart.getCartItems().add(replacement))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static List<Long> productIds(Cart cart) {
+        return cart.getSortedItems().stream().map(item -> item.getProduct().getId()).toList();
+    }
+
+    private static Product product(long id, String price) {
+        var product = new Product();
+        product.setId(id);
+        product.setPrice(new BigDecimal(price));
+        return product;
+    }
+}
@@ -22,6 +22,7 @@ import com.shivam.store.services.CartService;
 import java.math.BigInteger;
 import java.math.BigDecimal;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -55,7 +56,6 @@ class CheckoutServiceTest {
         user.setId(1L);
 
         cart = new Cart();
-        cart.setCartItems(new LinkedHashSet<>());
         CartItem item = new CartItem();
         Product product = new Product();
         product.setId(2L);
@@ -63,12 +63,12 @@ class CheckoutServiceTest {
         item.setProduct(product);
         item.setQuantity(2);
         item.setCart(cart);
-        cart.getCartItems().add(item);
+        cart.setCartItems(new LinkedHashSet<>(List.of(item)));
     }
 
     @Test
     void createOrder_buildsOrderAndDoesNotClearCartBeforePaymentConfirmation() {
-        when(authService.getUser()).thenReturn(user);
+        when(authService.getUserReference()).thenReturn(user);
         when(cartService.getCurrentCartEntity(any())).thenReturn(cart);
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
             Order order = invocation.getArgument(0);
@@ -91,7 +91,7 @@ class CheckoutServiceTest {
         var emptyCart = new Cart();
         emptyCart.setCartItems(new LinkedHashSet<>());
 
-        when(authService.getUser()).thenReturn(user);
+        when(authService.getUserReference()).thenReturn(user);
         when(cartService.getCurrentCartEntity(any())).thenReturn(emptyCart);
 
         assertThatThrownBy(() -> checkoutService.createOrder())
@@ -103,7 +103,7 @@ class CheckoutServiceTest {
 
     @Test
     void createOrder_whenPaymentFails_rollsBackOrderAndPropagates() {
-        when(authService.getUser()).thenReturn(user);
+        when(authService.getUserReference()).thenReturn(user);
         when(cartService.getCurrentCartEntity(any())).thenReturn(cart);
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
             Order order = invocation.getArgument(0);
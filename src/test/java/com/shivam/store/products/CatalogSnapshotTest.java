@@ -0,0 +1,81 @@
+package com.shivam.store.products;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.entities.Product;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.ProductRepository;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductMapper productMapper;
+    @Mock
+    private ProductRevisions productRevisions;
+
+    private CatalogSnapshot catalogSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        catalogSnapshot = new CatalogSnapshot(productRepository, productMapper,
+                new ProductJsonWriter(new ObjectMapper()), productRevisions);
+        when(productRepository.findAllByOrderByIdAsc()).thenReturn(List.of(new Product()));
+        when(productMapper.toDto(any(Product.class)))
+                .thenReturn(new ProductDto(1L, "Turntable", "Belt drive", BigDecimal.TEN, (byte) 1));
+    }
+
+    @Test
+    void get_reusesSnapshotUntilRevisionMoves() throws Exception {
+        when(productRevisions.category(null)).thenReturn(new ProductRevisions.Revision("all", 100L));
+        var first = catalogSnapshot.get(null);
+        var second = catalogSnapshot.get(null);
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first.json())).contains("\"name\":\"Turntable\"");
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(first.json());
+        }
+
+        when(productRevisions.category(null)).thenReturn(new ProductRevisions.Revision("all", 101L));
+        var rebuilt = catalogSnapshot.get(null);
+
+        assertThat(rebuilt).isNotSameAs(first);
+        assertThat(rebuilt.revision()).isEqualTo(101L);
+        verify(productRepository, times(2)).findAllByOrderByIdAsc();
+    }
+
+    @Test
+    void get_withCallerRevisionSkipsTheRevisionReadAndRetriesAfterAFailedBuild() {
+        var revision = new ProductRevisions.Revision("all", 200L);
+        when(productRepository.findAllByOrderByIdAsc())
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(List.of(new Product()));
+
+        assertThatThrownBy(() -> catalogSnapshot.get(null, revision)).isInstanceOf(IllegalStateException.class);
+        var snapshot = catalogSnapshot.get(null, revision);
+
+        assertThat(snapshot.revision()).isEqualTo(200L);
+        assertThat(catalogSnapshot.get(null, revision)).isSameAs(snapshot);
+        verify(productRevisions, never()).category(any());
+    }
+}
@@ -0,0 +1,101 @@
+package com.shivam.store.products;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.entities.Product;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.OrderItemRepository;
+import com.shivam.store.repositories.ProductRepository;
+import com.shivam.store.services.ProductService;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCacheWarmerTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private ProductMapper productMapper;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private ProductRevisions productRevisions;
+    @Mock
+    private ProductRepository snapshotRepository;
+
+    @Test
+    void warm_fillsCategoryListsAndTopSellersFromOneCatalogRead() {
+        var turntable = new Product();
+        var needle = new Product();
+        when(productRepository.findAllByOrderByIdAsc()).thenReturn(List.of(turntable, needle));
+        when(productMapper.toDto(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0) == turntable
+                ? new ProductDto(1L, "Turntable", "Belt drive", BigDecimal.TEN, (byte) 1)
+                : new ProductDto(2L, "Needle", "Diamond stylus", BigDecimal.ONE, (byte) 2));
+        when(orderItemRepository.findTopSellingProductIds(any())).thenReturn(List.of(2L));
+        var revision = new ProductRevisions.Revision("all", 300L);
+        when(productRevisions.category(null)).thenReturn(revision);
+        when(productRevisions.categoryValue(null)).thenReturn(300L);
+        when(productRevisions.categoryValue((byte) 1)).thenReturn(250L);
+        when(productRevisions.categoryValue((byte) 2)).thenReturn(300L);
+        // Snapshots get their own repository, so any database read they made would show up on it.
+        var catalogSnapshot = new CatalogSnapshot(snapshotRepository, productMapper,
+                new ProductJsonWriter(new ObjectMapper()), productRevisions);
+
+        var cacheManager = new ConcurrentMapCacheManager();
+        var warmer = new ProductCacheWarmer(productRepository, orderItemRepository, productMapper, productService,
+                cacheManager, productRevisions, catalogSnapshot);
+        ReflectionTestUtils.setField(warmer, "topProducts", 1);
+        ReflectionTestUtils.setField(warmer, "snapshotEnabled", true);
+
+        assertThat(warmer.warm()).isEqualTo(2);
+
+        var lists = cacheManager.getCache(ProductService.PRODUCTS_CACHE);
+        assertThat((List<?>) lists.get("all:300").get()).hasSize(2);
+        assertThat((List<?>) lists.get("1:250").get()).hasSize(1);
+        assertThat((List<?>) lists.get("2:300").get()).hasSize(1);
+        var byId = cacheManager.getCache(ProductService.PRODUCT_BY_ID_CACHE);
+        assertThat(byId.get(2L)).isNotNull();
+        assertThat(byId.get(1L)).isNull();
+        verify(productService).getProductPage(null, null, ProductService.DEFAULT_PAGE_SIZE);
+
+        assertThat(new String(catalogSnapshot.get(null, revision).json())).contains("Turntable", "Needle");
+        assertThat(new String(catalogSnapshot.get((byte) 1, new ProductRevisions.Revision("c1", 250L)).json()))
+                .contains("Turntable").doesNotContain("Needle");
+        assertThat(catalogSnapshot.get((byte) 2, revision)).isNotNull();
+        verifyNoInteractions(snapshotRepository);
+    }
+
+    @Test
+    void warm_leavesListsToReadersWhenAWriteLandsDuringTheRead() {
+        when(productRepository.findAllByOrderByIdAsc()).thenReturn(List.of(new Product()));
+        when(productMapper.toDto(any(Product.class)))
+                .thenReturn(new ProductDto(1L, "Turntable", "Belt drive", BigDecimal.TEN, (byte) 1));
+        when(productRevisions.category(null))
+                .thenReturn(new ProductRevisions.Revision("all", 300L), new ProductRevisions.Revision("all", 301L));
+
+        var cacheManager = new ConcurrentMapCacheManager();
+        var warmer = new ProductCacheWarmer(productRepository, orderItemRepository, productMapper, productService,
+                cacheManager, productRevisions, null);
+
+        warmer.warm();
+
+        var lists = (ConcurrentMap<?, ?>) cacheManager.getCache(ProductService.PRODUCTS_CACHE).getNativeCache();
+        assertThat(lists).isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+package com.shivam.store.products;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.shivam.store.dtos.ProductDto;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRevisionsTest {
+
+    @Mock
+    private ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private ProductRevisions revisions;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplateProvider.getIfAvailable()).thenReturn(redisTemplate);
+        revisions = new ProductRevisions(redisTemplateProvider, "redis");
+    }
+
+    @Test
+    void read_onlyWritesWhenTheCatalogRevisionIsMissing() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(eq(ProductRevisions.REVISIONS_KEY), anyList()))
+                .thenReturn(Arrays.asList(null, "500"))
+                .thenReturn(Arrays.asList(null, null));
+        when(redisTemplate.execute(any(RedisScript.class), anyList())).thenReturn(700L);
+
+        assertThat(revisions.product(1L)).isEqualTo(new ProductRevisions.Revision("all", 500L));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList());
+
+        assertThat(revisions.product(1L)).isEqualTo(new ProductRevisions.Revision("all", 700L));
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList());
+    }
+
+    @Test
+    void failedBump_failsTheWriteBeforeCommitAndIsRetriedAfterCommit() {
+        var event = ProductChangedEvent.created(new ProductDto(1L, "Turntable", "Belt drive", BigDecimal.TEN, (byte) 1));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThatThrownBy(() -> revisions.onProductChanging(event)).isInstanceOf(RedisConnectionFailureException.class);
+
+        revisions.onProductChanged(event);
+        revisions.retryPendingBumps();
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(800L);
+        revisions.retryPendingBumps();
+        revisions.retryPendingBumps();
+        verify(redisTemplate, times(4)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+}
@@ -0,0 +1,78 @@
+package com.shivam.store.products;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.shivam.store.dtos.ProductDto;
+import com.shivam.store.entities.Product;
+import com.shivam.store.mappers.ProductMapper;
+import com.shivam.store.repositories.ProductRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductMapper productMapper;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(productRepository, productMapper);
+        index.onProductChanged(ProductChangedEvent.created(product(1L, "Wireless Headphones", "Over-ear, noise cancelling")));
+        index.onProductChanged(ProductChangedEvent.created(product(2L, "Wired Earbuds", "Compact headphones for travel")));
+        index.onProductChanged(ProductChangedEvent.created(product(3L, "Desk Lamp", "Warm light for the headboard")));
+    }
+
+    @Test
+    void search_ranksNameMatchesAboveDescriptionMatches() {
+        var results = index.search("headphones", 10);
+
+        assertThat(results).extracting(ProductDto::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void search_matchesPrefixesAndRequiresEveryTerm() {
+        assertThat(index.search("head", 10)).extracting(ProductDto::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(index.search("head lamp", 10)).extracting(ProductDto::getId).containsExactly(3L);
+    }
+
+    @Test
+    void onProductChanged_appliesUpdatesAndDeletes() {
+        index.onProductChanged(ProductChangedEvent.updated((byte) 1, product(3L, "Floor Lamp", "Tall")));
+        index.onProductChanged(ProductChangedEvent.deleted(1L, (byte) 1));
+
+        assertThat(index.search("headboard", 10)).isEmpty();
+        assertThat(index.search("floor", 10)).extracting(ProductDto::getId).containsExactly(3L);
+        assertThat(index.search("headphones", 10)).extracting(ProductDto::getId).containsExactly(2L);
+    }
+
+    @Test
+    void rebuild_keepsChangesMadeWhileTheTableIsRead() {
+        var lamp = new Product();
+        when(productMapper.toDto(lamp)).thenReturn(product(3L, "Desk Lamp", "Warm light for the headboard"));
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            // Committed after the read started, so the rows returned do not include it.
+            index.onProductChanged(ProductChangedEvent.created(product(4L, "Studio Monitor", "Nearfield speaker")));
+            return List.of(lamp);
+        });
+
+        index.rebuild();
+
+        assertThat(index.search("studio", 10)).extracting(ProductDto::getId).containsExactly(4L);
+        assertThat(index.search("headphones", 10)).isEmpty();
+    }
+
+    private ProductDto product(long id, String name, String description) {
+        return new ProductDto(id, name, description, BigDecimal.TEN, (byte) 1);
+    }
+}
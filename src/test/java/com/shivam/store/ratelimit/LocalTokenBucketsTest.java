@@ -0,0 +1,47 @@
+package com.shivam.store.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class LocalTokenBucketsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final LocalTokenBuckets buckets = new LocalTokenBuckets(now::get);
+
+    @Test
+    void tryAcquire_allowsBurstThenRefillsGradually() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(buckets.tryAcquire("login:1.2.3.4", 10, 60_000)).isTrue();
+        }
+        assertThat(buckets.tryAcquire("login:1.2.3.4", 10, 60_000)).isFalse();
+        assertThat(buckets.tryAcquire("login:5.6.7.8", 10, 60_000)).isTrue();
+
+        now.addAndGet(5_999);
+        assertThat(buckets.tryAcquire("login:1.2.3.4", 10, 60_000)).isFalse();
+        now.addAndGet(6_000);
+        assertThat(buckets.tryAcquire("login:1.2.3.4", 10, 60_000)).isTrue();
+        assertThat(buckets.tryAcquire("login:1.2.3.4", 10, 60_000)).isFalse();
+    }
+
+    @Test
+    void tryAcquire_dropsBucketsOnceTheyWouldBeFullAgain() {
+        for (int i = 0; i < 1_000; i++) {
+            buckets.tryAcquire("login:" + i, 10, 60_000);
+        }
+        // Drained, it takes ten minutes to fill, well past one turn of the wheel.
+        for (int i = 0; i < 10; i++) {
+            buckets.tryAcquire("long:1", 10, 600_000);
+        }
+        assertThat(buckets.size()).isEqualTo(1_001);
+
+        now.addAndGet(62_000);
+        buckets.tryAcquire("login:0", 10, 60_000);
+        assertThat(buckets.size()).isEqualTo(2);
+
+        now.addAndGet(600_000);
+        buckets.tryAcquire("login:0", 10, 60_000);
+        assertThat(buckets.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,147 @@
+package com.shivam.store.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shivam.store.carts.CartItemChange;
+import com.shivam.store.config.FlywayMigrationConfig;
+import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.Product;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@ContextConfiguration(classes = FlywayMigrationConfig.class)
+class CartItemRepositoryTest {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private UUID cartId;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Stylus");
+        product.setDescription("Replacement needle");
+        product.setPrice(new BigDecimal("12.50"));
+        entityManager.persist(product);
+
+        var cart = new Cart();
+        cart.setGuestTokenHash("guest-line");
+        entityManager.persist(cart);
+        entityManager.flush();
+        cartId = cart.getId();
+    }
+
+    @Test
+    void incrementQuantity_insertsThenIncrementsAndReturnsLine() {
+        var first = cartItemRepository.incrementQuantity(cartId, product.getId());
+        var second = cartItemRepository.incrementQuantity(cartId, product.getId());
+
+        assertThat(first).get().extracting("quantity").isEqualTo(1);
+        assertThat(second).isPresent();
+        assertThat(second.get().quantity()).isEqualTo(2);
+        assertThat(second.get().name()).isEqualTo("Stylus");
+        assertThat(second.get().price()).isEqualByComparingTo("12.50");
+        assertThat(quantityInDatabase()).isEqualTo(2);
+    }
+
+    @Test
+    void incrementQuantity_unknownProduct_returnsEmpty() {
+        assertThat(cartItemRepository.incrementQuantity(cartId, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void setQuantity_onlyUpdatesExistingLines() {
+        assertThat(cartItemRepository.setQuantity(cartId, product.getId(), 4)).isEmpty();
+
+        cartItemRepository.incrementQuantity(cartId, product.getId());
+        var line = cartItemRepository.setQuantity(cartId, product.getId(), 4);
+
+        assertThat(line).get().extracting("quantity").isEqualTo(4);
+        assertThat(quantityInDatabase()).isEqualTo(4);
+    }
+
+    @Test
+    void decrementQuantity_decrementsThenDeletesLine() {
+        cartItemRepository.incrementQuantity(cartId, product.getId());
+        cartItemRepository.incrementQuantity(cartId, product.getId());
+
+        cartItemRepository.decrementQuantity(cartId, product.getId());
+        assertThat(quantityInDatabase()).isEqualTo(1);
+
+        cartItemRepository.decrementQuantity(cartId, product.getId());
+        assertThat(quantityInDatabase()).isNull();
+    }
+
+    @Test
+    void applyChanges_addsSetsAndRemovesInBatches() {
+        var other = new Product();
+        other.setName("Slipmat");
+        other.setDescription("Felt");
+        other.setPrice(BigDecimal.ONE);
+        entityManager.persist(other);
+        entityManager.flush();
+        cartItemRepository.incrementQuantity(cartId, other.getId());
+
+        cartItemRepository.applyChanges(cartId, List.of(
+                new CartItemChange(product.getId(), CartItemChange.Kind.ADD, 2),
+                new CartItemChange(other.getId(), CartItemChange.Kind.REMOVE, 1)));
+        assertThat(quantityInDatabase()).isEqualTo(2);
+
+        cartItemRepository.applyChanges(cartId, List.of(
+                new CartItemChange(product.getId(), CartItemChange.Kind.ADD, 3)));
+        assertThat(quantityInDatabase()).isEqualTo(5);
+
+        cartItemRepository.applyChanges(cartId, List.of(
+                new CartItemChange(product.getId(), CartItemChange.Kind.SET, 1),
+                new CartItemChange(other.getId(), CartItemChange.Kind.SET, 2)));
+        assertThat(quantityInDatabase()).isEqualTo(1);
+        assertThat(cartItemRepository.setQuantity(cartId, other.getId(), 2)).isPresent();
+    }
+
+    @Test
+    void mergeInto_addsSourceLinesToTarget() {
+        var other = new Product();
+        other.setName("Slipmat");
+        other.setDescription("Felt");
+        other.setPrice(BigDecimal.ONE);
+        entityManager.persist(other);
+        var source = new Cart();
+        source.setGuestTokenHash("guest-merge");
+        entityManager.persist(source);
+        entityManager.flush();
+        cartItemRepository.incrementQuantity(cartId, product.getId());
+        cartItemRepository.applyChanges(source.getId(), List.of(
+                new CartItemChange(product.getId(), CartItemChange.Kind.ADD, 2),
+                new CartItemChange(other.getId(), CartItemChange.Kind.ADD, 1)));
+
+        var merged = cartItemRepository.mergeInto(cartId, source.getId());
+
+        assertThat(merged).isEqualTo(2);
+        assertThat(quantityInDatabase()).isEqualTo(3);
+        assertThat(cartItemRepository.setQuantity(cartId, other.getId(), 1)).isPresent();
+    }
+
+    private Integer quantityInDatabase() {
+        var rows = entityManager.getEntityManager()
+                .createNativeQuery("SELECT quantity FROM cart_items WHERE cart_id = ? AND product_id = ?")
+                .setParameter(1, cartId)
+                .setParameter(2, product.getId())
+                .getResultList();
+        return rows.isEmpty() ? null : ((Number) rows.get(0)).intValue();
+    }
+}
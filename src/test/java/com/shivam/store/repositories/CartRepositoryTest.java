@@ -1,17 +1,24 @@
 package com.shivam.store.repositories;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.shivam.store.carts.CartVersion;
 import com.shivam.store.config.FlywayMigrationConfig;
 import com.shivam.store.entities.Cart;
+import com.shivam.store.entities.Product;
 import com.shivam.store.entities.User;
+import com.shivam.store.services.TokenDigest;
+import java.math.BigDecimal;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.util.UUID;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -27,15 +34,80 @@ class CartRepositoryTest {
     private TestEntityManager entityManager;
 
     @Test
-    void findByGuestToken_returnsMatchingCart() {
+    void findByGuestTokenHash_returnsMatchingCart() {
+        var hash = TokenDigest.sha256Hex("guest-123");
         Cart cart = new Cart();
-        cart.setGuestToken("guest-123");
+        cart.setGuestTokenHash(hash);
         cartRepository.saveAndFlush(cart);
 
-        var result = cartRepository.findByGuestToken("guest-123");
+        var result = cartRepository.findByGuestTokenHash(hash);
 
         assertThat(result).isPresent();
-        assertThat(result.get().getGuestToken()).isEqualTo("guest-123");
+        assertThat(result.get().getGuestTokenHash()).isEqualTo(hash);
+    }
+
+    @Test
+    void guestTokenHash_isUnique() {
+        var hash = TokenDigest.sha256Hex("guest-dup");
+        Cart first = new Cart();
+        first.setGuestTokenHash(hash);
+        cartRepository.saveAndFlush(first);
+
+        Cart second = new Cart();
+        second.setGuestTokenHash(hash);
+
+        assertThatThrownBy(() -> cartRepository.saveAndFlush(second))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void insertGuestCartIfAbsent_keepsTheFirstCartForAGuest() {
+        var hash = TokenDigest.sha256Hex("guest-race");
+
+        assertThat(cartRepository.insertGuestCartIfAbsent(hash)).isTrue();
+        var first = cartRepository.findByGuestTokenHash(hash).orElseThrow().getId();
+        assertThat(cartRepository.insertGuestCartIfAbsent(hash)).isFalse();
+
+        assertThat(cartRepository.findByGuestTokenHash(hash)).get().extracting(Cart::getId).isEqualTo(first);
+    }
+
+    @Test
+    void bumpGuestCartVersion_returnsTheNewVersionAndHonoursTheExpectedOne() {
+        var hash = TokenDigest.sha256Hex("guest-bump");
+        Cart cart = new Cart();
+        cart.setGuestTokenHash(hash);
+        var cartId = cartRepository.saveAndFlush(cart).getId();
+
+        assertThat(cartRepository.bumpGuestCartVersion(hash, null)).get()
+                .isEqualTo(new CartVersion(cartId, 1));
+        assertThat(cartRepository.bumpGuestCartVersion(hash, 0L)).isEmpty();
+        assertThat(cartRepository.bumpGuestCartVersion(hash, 1L)).get()
+                .isEqualTo(new CartVersion(cartId, 2));
+        assertThat(cartRepository.bumpGuestCartVersion(TokenDigest.sha256Hex("guest-none"), null)).isEmpty();
+    }
+
+    @Test
+    void bumpUserCartVersion_movesTheNewestCartOnly() {
+        var user = new User();
+        user.setName("Bump User");
+        user.setEmail("bump@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+
+        Cart older = new Cart();
+        older.setUser(user);
+        entityManager.persist(older);
+
+        Cart newer = new Cart();
+        newer.setUser(user);
+        entityManager.persist(newer);
+
+        entityManager.flush();
+        updateDateCreated(older.getId(), LocalDate.now().minusDays(1));
+
+        assertThat(cartRepository.bumpUserCartVersion(user.getId(), 0L)).get()
+                .isEqualTo(new CartVersion(newer.getId(), 1));
+        assertThat(cartRepository.findById(older.getId())).get().extracting(Cart::getVersion).isEqualTo(0L);
     }
 
     @Test
@@ -65,10 +137,46 @@ class CartRepositoryTest {
         assertThat(result.get().getId()).isEqualTo(newer.getId());
     }
 
+    @Test
+    void findLatestWithItemsByUser_loadsNewestCartWithItemsAndProducts() {
+        var user = new User();
+        user.setName("Fetch User");
+        user.setEmail("fetch@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+
+        var product = new Product();
+        product.setName("Turntable");
+        product.setDescription("Belt drive");
+        product.setPrice(BigDecimal.TEN);
+        entityManager.persist(product);
+
+        Cart older = new Cart();
+        older.setUser(user);
+        entityManager.persist(older);
+
+        Cart newer = new Cart();
+        newer.setUser(user);
+        newer.addItem(product);
+        entityManager.persist(newer);
+
+        entityManager.flush();
+        updateDateCreated(older.getId(), LocalDate.now().minusDays(1));
+        entityManager.clear();
+
+        var result = cartRepository.findLatestWithItemsByUser(user);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getId()).isEqualTo(newer.getId());
+        assertThat(Hibernate.isInitialized(result.get().getCartItems())).isTrue();
+        var item = result.get().getCartItems().iterator().next();
+        assertThat(Hibernate.isInitialized(item.getProduct())).isTrue();
+    }
+
     private void updateDateCreated(UUID cartId, LocalDate value) {
         entityManager.getEntityManager().createNativeQuery("UPDATE carts SET date_created = ? WHERE id = ?")
                 .setParameter(1, Date.valueOf(value))
-                .setParameter(2, cartId.toString())
+                .setParameter(2, cartId)
                 .executeUpdate();
     }
 }
@@ -9,6 +9,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
@@ -47,6 +48,32 @@ class ProductRepositoryTest {
                 .containsExactlyInAnyOrder("Mouse", "Keyboard");
     }
 
+    @Test
+    void findByIdGreaterThan_pagesByKeysetInIdOrder() {
+        var category = new Category();
+        category.setName("Paging");
+        category = categoryRepository.save(category);
+
+        var saved = productRepository.saveAll(List.of(
+                buildProduct("A", category),
+                buildProduct("B", category),
+                buildProduct("C", category)
+        ));
+        long firstId = saved.get(0).getId();
+
+        var firstPage = productRepository.findByCategory_IdAndIdGreaterThanOrderByIdAsc(
+                category.getId(), 0L, Limit.of(2));
+        var secondPage = productRepository.findByCategory_IdAndIdGreaterThanOrderByIdAsc(
+                category.getId(), firstPage.get(1).getId(), Limit.of(2));
+
+        assertThat(firstPage).extracting(Product::getName).containsExactly("A", "B");
+        assertThat(secondPage).extracting(Product::getName).containsExactly("C");
+        assertThat(productRepository.findByIdGreaterThanOrderByIdAsc(firstId, Limit.of(10)))
+                .extracting(Product::getId)
+                .isSorted()
+                .doesNotContain(firstId);
+    }
+
     private Product buildProduct(String name, Category category) {
         var product = new Product();
         product.setName(name);
@@ -0,0 +1,97 @@
+package com.shivam.store.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.shivam.store.cache.TwoTierCacheManager;
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+import com.shivam.store.repositories.UserRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class AuthServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TwoTierCacheManager cacheManager = mock(TwoTierCacheManager.class);
+    private AuthService authService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<TwoTierCacheManager> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(cacheManager);
+        authService = new AuthService(userRepository, provider, Duration.ofMinutes(1), 100);
+        var user = User.builder().id(5L).name("Ada").email("ada@example.com").password("hash").role(Role.ADMIN).build();
+        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(5L, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void getUser_readsTheUsersTableOncePerCacheLifetime() {
+        var first = inRequest(authService::getUser);
+        var again = inRequest(authService::getUser);
+
+        verify(userRepository, times(1)).findById(5L);
+        assertThat(again).isEqualTo(first)
+                .isEqualTo(new AuthenticatedUser(5L, "Ada", "ada@example.com", Role.ADMIN));
+    }
+
+    @Test
+    void evict_forcesTheNextRequestToReload() {
+        inRequest(authService::getUser);
+        authService.evict(5L);
+        inRequest(authService::getUser);
+
+        verify(userRepository, times(2)).findById(5L);
+        verify(cacheManager).broadcastEvict(AuthService.USER_CACHE, "5");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictionOnAnotherNode_forcesTheNextRequestToReload() {
+        ArgumentCaptor<Consumer<String>> evictLocal = ArgumentCaptor.forClass(Consumer.class);
+        verify(cacheManager).registerLocalCache(eq(AuthService.USER_CACHE), evictLocal.capture());
+        inRequest(authService::getUser);
+
+        evictLocal.getValue().accept("5");
+        inRequest(authService::getUser);
+
+        verify(userRepository, times(2)).findById(5L);
+    }
+
+    private static <T> T inRequest(Supplier<T> call) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            var first = call.get();
+            assertThat(call.get()).isSameAs(first);
+            return first;
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
@@ -3,24 +3,34 @@ package com.shivam.store.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.shivam.store.carts.CartLine;
+import com.shivam.store.carts.CartItemChange;
 import com.shivam.store.carts.CartOwner;
+import com.shivam.store.carts.CartVersion;
 import com.shivam.store.dtos.CartDto;
 import com.shivam.store.dtos.CartItemDto;
-import com.shivam.store.dtos.CartProductDto;
+import com.shivam.store.dtos.CartItemOperationDto;
 import com.shivam.store.entities.Cart;
-import com.shivam.store.entities.Product;
 import com.shivam.store.entities.User;
-import com.shivam.store.exceptions.CartNotFoundException;
+import com.shivam.store.exceptions.CartConflictException;
+import com.shivam.store.exceptions.CartVersionMismatchException;
+import com.shivam.store.exceptions.IncorrectUserException;
 import com.shivam.store.exceptions.ProductNotFoundException;
 import com.shivam.store.mappers.CartMapper;
+import com.shivam.store.repositories.CartItemRepository;
 import com.shivam.store.repositories.CartRepository;
 import com.shivam.store.repositories.ProductRepository;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,6 +39,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class CartServiceTest {
@@ -36,9 +48,13 @@ class CartServiceTest {
     @Mock
     private CartRepository cartRepository;
     @Mock
+    private CartItemRepository cartItemRepository;
+    @Mock
     private ProductRepository productRepository;
     @Mock
     private CartMapper cartMapper;
+    @Mock
+    private TransactionTemplate transactionTemplate;
 
     @InjectMocks
     private CartService cartService;
@@ -55,12 +71,14 @@ class CartServiceTest {
         cart = new Cart();
         cart.setId(cartId);
         cart.setUser(user);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
     void createCart_newUserCartIsPersistedAndMapped() {
         var owner = CartOwner.authenticated(user);
-        when(cartRepository.findFirstByUserOrderByDateCreatedDesc(user)).thenReturn(Optional.empty());
+        when(cartRepository.findLatestWithItemsByUser(user)).thenReturn(Optional.empty());
 
         var expectedDto = new CartDto();
         expectedDto.setId(cartId);
@@ -79,83 +97,180 @@ class CartServiceTest {
     }
 
     @Test
-    void addProductToCurrentCart_addsItemAndReturnsDto() {
+    void addProductToCurrentCart_bumpsVersionAndUpsertsLineWithoutLoadingCart() {
         var owner = CartOwner.authenticated(user);
-        var product = new Product();
-        product.setId(10L);
-        product.setPrice(BigDecimal.TEN);
+        var line = new CartLine(10L, "Record", BigDecimal.TEN, 2);
+        var responseDto = new CartItemDto();
+        when(cartRepository.bumpUserCartVersion(1L, null)).thenReturn(Optional.of(new CartVersion(cartId, 8)));
+        when(cartItemRepository.incrementQuantity(cartId, 10L)).thenReturn(Optional.of(line));
+        when(cartMapper.toCartItemDto(line)).thenReturn(responseDto);
 
-        CartDto cartDto = new CartDto();
-        cartDto.setId(cartId);
+        var result = cartService.addProductToCurrentCart(10L, owner);
 
-        when(cartRepository.findFirstByUserOrderByDateCreatedDesc(user)).thenReturn(Optional.of(cart));
-        when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
-        when(cartMapper.toDto(cart)).thenReturn(cartDto);
+        assertThat(result).isSameAs(responseDto);
+        assertThat(result.getCartVersion()).isEqualTo(8L);
+        verify(cartRepository, never()).findLatestVersionByUser(any());
+        verify(cartRepository, never()).findLatestWithItemsByUser(any());
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void addProductToCurrentCart_withoutCart_createsCartFirst() {
+        var owner = CartOwner.guest("guest-new");
+        var line = new CartLine(10L, "Record", BigDecimal.TEN, 1);
+        var created = new Cart();
+        created.setId(cartId);
+        created.setVersion(0L);
+        when(cartRepository.findWithItemsByGuestTokenHash(TokenDigest.sha256Hex("guest-new")))
+                .thenReturn(Optional.empty(), Optional.of(created));
+        when(cartRepository.insertGuestCartIfAbsent(TokenDigest.sha256Hex("guest-new"))).thenReturn(true);
+        when(cartRepository.bumpGuestCartVersion(TokenDigest.sha256Hex("guest-new"), null))
+                .thenReturn(Optional.empty(), Optional.of(new CartVersion(cartId, 1)));
+        when(cartItemRepository.incrementQuantity(cartId, 10L)).thenReturn(Optional.of(line));
+        when(cartMapper.toCartItemDto(line)).thenReturn(new CartItemDto());
 
-        CartItemDto responseDto = new CartItemDto();
-        CartProductDto responseProduct = new CartProductDto();
-        responseProduct.setId(product.getId());
-        responseDto.setProduct(responseProduct);
-        when(cartMapper.toCartItemDto(any())).thenReturn(responseDto);
+        assertThat(cartService.addProductToCurrentCart(10L, owner).getCartVersion()).isEqualTo(1L);
+    }
 
-        CartItemDto result = cartService.addProductToCurrentCart(product.getId(), owner);
+    @Test
+    void createCart_forGuestLosingTheCreateRace_returnsTheWinnersCart() {
+        var owner = CartOwner.guest("guest-race");
+        var hash = TokenDigest.sha256Hex("guest-race");
+        var winners = new Cart();
+        winners.setId(cartId);
+        winners.setGuestTokenHash(hash);
+        var expectedDto = new CartDto();
+        when(cartRepository.findWithItemsByGuestTokenHash(hash)).thenReturn(Optional.empty(), Optional.of(winners));
+        when(cartRepository.insertGuestCartIfAbsent(hash)).thenReturn(false);
+        when(cartMapper.toDto(winners)).thenReturn(expectedDto);
 
-        assertThat(result.getProduct().getId()).isEqualTo(product.getId());
-        verify(cartRepository).save(cart);
+        assertThat(cartService.createCart(owner)).isSameAs(expectedDto);
+        verify(cartRepository, never()).save(any());
     }
 
     @Test
-    void addProductToCurrentCart_whenCartMissing_throwsCartNotFound() {
-        var owner = CartOwner.authenticated(user);
-        CartDto cartDto = new CartDto();
-        cartDto.setId(cartId);
+    void addProductToCurrentCart_whenProductMissing_throwsProductNotFound() {
+        var owner = CartOwner.guest("guest-1");
+        when(cartRepository.bumpGuestCartVersion(TokenDigest.sha256Hex("guest-1"), null))
+                .thenReturn(Optional.of(new CartVersion(cartId, 1)));
+        when(cartItemRepository.incrementQuantity(cartId, 99L)).thenReturn(Optional.empty());
 
-        when(cartRepository.findFirstByUserOrderByDateCreatedDesc(user)).thenReturn(Optional.of(cart));
-        when(cartMapper.toDto(cart)).thenReturn(cartDto);
-        when(cartRepository.findById(cartId)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> cartService.addProductToCurrentCart(99L, owner))
+                .isInstanceOf(ProductNotFoundException.class);
+    }
+
+    @Test
+    void addProductToCurrentCart_withoutOwner_throwsIncorrectUser() {
+        var owner = new CartOwner(Optional.empty(), Optional.empty());
 
         assertThatThrownBy(() -> cartService.addProductToCurrentCart(1L, owner))
-                .isInstanceOf(CartNotFoundException.class);
+                .isInstanceOf(IncorrectUserException.class);
 
-        verify(productRepository, never()).findById(any());
+        verify(cartItemRepository, never()).incrementQuantity(any(), any());
+        verify(cartRepository, never()).save(any());
     }
 
     @Test
-    void addProductToCurrentCart_whenProductMissing_throwsProductNotFound() {
+    void addProductToCurrentCart_cartGoneBeforeBump_retriesFromFreshRead() {
         var owner = CartOwner.authenticated(user);
-        CartDto cartDto = new CartDto();
-        cartDto.setId(cartId);
+        var otherCartId = UUID.randomUUID();
+        var line = new CartLine(10L, "Record", BigDecimal.TEN, 1);
+        // The cart is seen, then gone before the second bump; the retry bumps the user's next cart.
+        when(cartRepository.bumpUserCartVersion(1L, null))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(new CartVersion(otherCartId, 1)));
+        when(cartRepository.findLatestVersionByUser(user)).thenReturn(Optional.of(new CartVersion(cartId, 4)));
+        when(cartItemRepository.incrementQuantity(otherCartId, 10L)).thenReturn(Optional.of(line));
+        when(cartMapper.toCartItemDto(line)).thenReturn(new CartItemDto());
 
-        when(cartRepository.findFirstByUserOrderByDateCreatedDesc(user)).thenReturn(Optional.of(cart));
-        when(cartMapper.toDto(cart)).thenReturn(cartDto);
-        when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(99L)).thenReturn(Optional.empty());
+        assertThat(cartService.addProductToCurrentCart(10L, owner).getCartVersion()).isEqualTo(1L);
+        verify(cartItemRepository, never()).incrementQuantity(cartId, 10L);
+    }
 
-        assertThatThrownBy(() -> cartService.addProductToCurrentCart(99L, owner))
-                .isInstanceOf(ProductNotFoundException.class);
+    @Test
+    void addProductToCurrentCart_retriesExhausted_throwsConflict() {
+        var owner = CartOwner.authenticated(user);
+        when(cartRepository.findLatestVersionByUser(user)).thenReturn(Optional.of(new CartVersion(cartId, 4)));
 
-        verify(cartRepository, never()).save(any());
+        assertThatThrownBy(() -> cartService.addProductToCurrentCart(10L, owner))
+                .isInstanceOf(CartConflictException.class);
+
+        verify(cartRepository, times(2 * CartService.MAX_WRITE_ATTEMPTS)).bumpUserCartVersion(1L, null);
+        verify(cartItemRepository, never()).incrementQuantity(any(), any());
+    }
+
+    @Test
+    void addProductToCurrentCart_ifMatchLosesRace_throwsVersionMismatch() {
+        var owner = CartOwner.authenticated(user);
+        // Another writer moved the cart past 4 between the lookup and the second compare-and-set.
+        when(cartRepository.findLatestVersionByUser(user)).thenReturn(Optional.of(new CartVersion(cartId, 4)));
+
+        assertThatThrownBy(() -> cartService.addProductToCurrentCart(10L, owner, 4L))
+                .isInstanceOf(CartVersionMismatchException.class);
+
+        verify(cartItemRepository, never()).incrementQuantity(any(), any());
+    }
+
+    @Test
+    void addProductToCurrentCart_staleIfMatch_throwsVersionMismatchWithoutWriting() {
+        var owner = CartOwner.authenticated(user);
+        when(cartRepository.findLatestVersionByUser(user)).thenReturn(Optional.of(new CartVersion(cartId, 4)));
+
+        assertThatThrownBy(() -> cartService.addProductToCurrentCart(10L, owner, 3L))
+                .isInstanceOf(CartVersionMismatchException.class);
+
+        verify(cartRepository, times(1)).bumpUserCartVersion(1L, 3L);
+        verify(cartItemRepository, never()).incrementQuantity(any(), any());
     }
 
     @Test
-    void clearCurrentCart_removesItemsAndSaves() {
+    void clearCurrentCart_deletesItemsAndReturnsNewVersion() {
         var owner = CartOwner.authenticated(user);
-        var product = new Product();
-        product.setId(5L);
-        product.setPrice(BigDecimal.ONE);
-        cart.addItem(product);
+        when(cartRepository.bumpUserCartVersion(1L, 2L)).thenReturn(Optional.of(new CartVersion(cartId, 3)));
 
-        CartDto cartDto = new CartDto();
-        cartDto.setId(cartId);
+        assertThat(cartService.clearCurrentCart(owner, 2L)).isEqualTo(3L);
 
-        when(cartRepository.findFirstByUserOrderByDateCreatedDesc(user)).thenReturn(Optional.of(cart));
+        verify(cartItemRepository).deleteByCartId(cartId);
+    }
+
+    @Test
+    void updateCurrentCart_coalescesOperationsIntoOneBatch() {
+        var owner = CartOwner.authenticated(user);
+        var cartDto = new CartDto();
+        when(productRepository.findExistingIds(Set.of(10L))).thenReturn(Set.of(10L));
+        when(cartRepository.bumpUserCartVersion(1L, null)).thenReturn(Optional.of(new CartVersion(cartId, 2)));
+        when(cartRepository.findLatestWithItemsByUser(user)).thenReturn(Optional.of(cart));
         when(cartMapper.toDto(cart)).thenReturn(cartDto);
-        when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
 
-        cartService.clearCurrentCart(owner);
+        var result = cartService.updateCurrentCart(List.of(
+                operation(CartItemChange.Kind.ADD, 10L, null),
+                operation(CartItemChange.Kind.ADD, 10L, 2),
+                operation(CartItemChange.Kind.REMOVE, 11L, null)), owner, null);
+
+        assertThat(result).isSameAs(cartDto);
+        verify(cartItemRepository).applyChanges(cartId, List.of(
+                new CartItemChange(10L, CartItemChange.Kind.ADD, 3),
+                new CartItemChange(11L, CartItemChange.Kind.REMOVE, 1)));
+    }
+
+    @Test
+    void updateCurrentCart_unknownProduct_throwsBeforeWriting() {
+        var owner = CartOwner.authenticated(user);
+        when(productRepository.findExistingIds(Set.of(10L, 99L))).thenReturn(Set.of(10L));
+
+        assertThatThrownBy(() -> cartService.updateCurrentCart(List.of(
+                operation(CartItemChange.Kind.ADD, 10L, null),
+                operation(CartItemChange.Kind.SET, 99L, 2)), owner, null))
+                .isInstanceOf(ProductNotFoundException.class);
+
+        verify(cartRepository, never()).bumpUserCartVersion(anyLong(), any());
+        verify(cartItemRepository, never()).applyChanges(any(), any());
+    }
 
-        assertThat(cart.getCartItems()).isEmpty();
-        verify(cartRepository).save(cart);
+    private static CartItemOperationDto operation(CartItemChange.Kind kind, Long productId, Integer quantity) {
+        var operation = new CartItemOperationDto();
+        operation.setOp(kind);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
     }
 }
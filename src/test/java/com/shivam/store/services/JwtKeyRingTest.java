@@ -0,0 +1,146 @@
+package com.shivam.store.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+@ExtendWith(MockitoExtension.class)
+class JwtKeyRingTest {
+
+    private static final String SECRET = "TestSecretKeyForJwt1234567890!!ABCD";
+
+    @Mock
+    private ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    // Stands in for the jwt:jwks sorted set all nodes share.
+    private final Set<ZSetOperations.TypedTuple<String>> published = new LinkedHashSet<>();
+    private boolean redisDown;
+    private JwtConfig jwtConfig;
+
+    @BeforeEach
+    void setUp() {
+        jwtConfig = config(SECRET);
+        lenient().when(redisTemplateProvider.getIfAvailable()).thenReturn(redisTemplate);
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(zSetOperations.add(eq(JwtKeyRing.JWKS_KEY), anyString(), anyDouble())).thenAnswer(invocation -> {
+            if (redisDown) {
+                throw new RedisConnectionFailureException("down");
+            }
+            return published.add(new DefaultTypedTuple<>(invocation.getArgument(1), invocation.getArgument(2)));
+        });
+        lenient().when(zSetOperations.rangeByScoreWithScores(eq(JwtKeyRing.JWKS_KEY), anyDouble(), anyDouble()))
+                .thenAnswer(invocation -> new LinkedHashSet<>(published));
+    }
+
+    @Test
+    void keysPublishedByAnotherNode_verifyItsTokens() {
+        var issuer = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis"), 100);
+        var verifier = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis"), 100);
+
+        var token = issuer.generateAccessToken(user()).toString();
+
+        assertThat(verifier.parseToken(token).getUserId()).isEqualTo(7L);
+    }
+
+    @Test
+    void keysWrittenToRedisWithoutTheSecret_areNotTrusted() {
+        var attackerRing = new JwtKeyRing(jwtConfig);
+        var attacker = new JwtService(jwtConfig, attackerRing, 100);
+        var json = attackerRing.publicJwksJson().replaceFirst("^\\{\"keys\":\\[(.*)]}$", "$1");
+        var expiresAt = Instant.now().plusSeconds(3600);
+        // A bare JWK, and one wrapped with a secret the nodes do not share.
+        published.add(new DefaultTypedTuple<>(json, (double) expiresAt.toEpochMilli()));
+        published.add(new DefaultTypedTuple<>(Jwts.builder()
+                .claim("jwk", json)
+                .expiration(Date.from(expiresAt))
+                .signWith(Keys.hmacShaKeyFor("SomeOtherSecretForJwt1234567890!!XY".getBytes(StandardCharsets.UTF_8)))
+                .compact(), (double) expiresAt.toEpochMilli()));
+        var verifier = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis"), 100);
+
+        var forged = attacker.generateAccessToken(user()).toString();
+
+        assertThat(verifier.parseToken(forged)).isNull();
+    }
+
+    @Test
+    void jwksDocument_includesKeysOtherNodesRotatedIn() {
+        var other = new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis");
+        var local = new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis");
+
+        other.rotate();
+
+        assertThat(local.publicJwksJson()).contains(other.signingKey().id());
+    }
+
+    @Test
+    void failedPublish_keepsSigningWithThePublishedKeyUntilARetrySucceeds() {
+        var issuerRing = new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis");
+        var issuer = new JwtService(jwtConfig, issuerRing, 100);
+        var verifier = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig, redisTemplateProvider, "redis"), 100);
+        var previousKid = issuerRing.signingKey().id();
+
+        redisDown = true;
+        issuerRing.rotate();
+
+        assertThat(issuerRing.signingKey().id()).isEqualTo(previousKid);
+        assertThat(verifier.parseToken(issuer.generateAccessToken(user()).toString())).isNotNull();
+
+        redisDown = false;
+        issuerRing.retryPendingKey();
+
+        assertThat(issuerRing.signingKey().id()).isNotEqualTo(previousKid);
+        assertThat(verifier.parseToken(issuer.generateAccessToken(user()).toString())).isNotNull();
+    }
+
+    @Test
+    void asymmetricKeysWithoutRedis_failAtStartup() {
+        assertThatThrownBy(() -> new JwtKeyRing(jwtConfig, redisTemplateProvider, "simple"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("spring.cache.type=redis");
+    }
+
+    private static JwtConfig config(String secret) {
+        var config = new JwtConfig();
+        config.setSecret(secret);
+        config.setAccessExpiration(900);
+        config.setRefreshExpiration(604800);
+        config.setAlgorithm(JwtConfig.Algorithm.ES256);
+        return config;
+    }
+
+    private static User user() {
+        var user = new User();
+        user.setId(7L);
+        user.setEmail("jwt@example.com");
+        user.setRole(Role.ADMIN);
+        return user;
+    }
+}
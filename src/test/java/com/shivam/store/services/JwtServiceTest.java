@@ -0,0 +1,85 @@
+package com.shivam.store.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shivam.store.config.JwtConfig;
+import com.shivam.store.entities.Role;
+import com.shivam.store.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JwtServiceTest {
+
+    private JwtConfig jwtConfig;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtConfig = new JwtConfig();
+        jwtConfig.setSecret("TestSecretKeyForJwt1234567890!!ABCD");
+        jwtConfig.setAccessExpiration(900);
+        jwtService = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig), 100);
+    }
+
+    @Test
+    void parseToken_repeatTokenIsServedFromCache() {
+        var token = jwtService.generateAccessToken(user()).toString();
+
+        var first = jwtService.parseToken(token);
+        var second = jwtService.parseToken(token);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+        assertThat(second.getUserId()).isEqualTo(7L);
+    }
+
+    @Test
+    void parseToken_rejectsTamperedAndExpiredTokensEveryTime() {
+        var token = jwtService.generateAccessToken(user()).toString();
+        var tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        jwtConfig.setAccessExpiration(-1);
+        var expired = jwtService.generateAccessToken(user()).toString();
+
+        assertThat(jwtService.parseToken(tampered)).isNull();
+        assertThat(jwtService.parseToken(tampered)).isNull();
+        assertThat(jwtService.parseToken(expired)).isNull();
+        assertThat(jwtService.parseToken(null)).isNull();
+    }
+
+    @Test
+    void asymmetricTokens_carryKeyIdAndStillVerifyAfterRotation() {
+        jwtConfig.setAlgorithm(JwtConfig.Algorithm.EDDSA);
+        jwtConfig.setRefreshExpiration(604800);
+        var keyRing = new JwtKeyRing(jwtConfig);
+        jwtService = new JwtService(jwtConfig, keyRing, 100);
+        var beforeRotation = jwtService.generateAccessToken(user()).toString();
+
+        keyRing.rotate();
+        var afterRotation = jwtService.generateAccessToken(user()).toString();
+
+        assertThat(beforeRotation.split("\\.")[0]).isNotEqualTo(afterRotation.split("\\.")[0]);
+        assertThat(jwtService.parseToken(beforeRotation)).isNotNull();
+        assertThat(jwtService.parseToken(afterRotation).getUserId()).isEqualTo(7L);
+        assertThat(keyRing.publicJwksJson()).contains("\"kty\":\"OKP\"").doesNotContain("\"d\"");
+    }
+
+    @Test
+    void asymmetricTokens_fromAnotherRingAreRejected() {
+        jwtConfig.setAlgorithm(JwtConfig.Algorithm.ES256);
+        jwtService = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig), 100);
+        var foreign = new JwtService(jwtConfig, new JwtKeyRing(jwtConfig), 100);
+
+        var token = foreign.generateAccessToken(user()).toString();
+
+        assertThat(jwtService.parseToken(token)).isNull();
+        assertThat(foreign.parseToken(token)).isNotNull();
+    }
+
+    private static User user() {
+        var user = new User();
+        user.setId(7L);
+        user.setEmail("jwt@example.com");
+        user.setRole(Role.USER);
+        return user;
+    }
+}
@@ -52,7 +52,7 @@ class OrderServiceTest {
         order.setStatus(OrderStatus.PENDING);
 
         when(orderRepository.findById(BigInteger.ONE)).thenReturn(Optional.of(order));
-        when(authService.getUser()).thenReturn(owner);
+        when(authService.getUser()).thenReturn(AuthenticatedUser.of(owner));
 
         orderService.cancelPendingOrder(BigInteger.ONE);
 
@@ -75,7 +75,7 @@ class OrderServiceTest {
         order.setStatus(OrderStatus.PENDING);
 
         when(orderRepository.findById(BigInteger.valueOf(3))).thenReturn(Optional.of(order));
-        when(authService.getUser()).thenReturn(otherUser);
+        when(authService.getUser()).thenReturn(AuthenticatedUser.of(otherUser));
 
         assertThatThrownBy(() -> orderService.cancelPendingOrder(BigInteger.valueOf(3)))
                 .isInstanceOf(IncorrectUserException.class);
@@ -90,7 +90,7 @@ class OrderServiceTest {
         order.setStatus(OrderStatus.PAID);
 
         when(orderRepository.findById(BigInteger.valueOf(4))).thenReturn(Optional.of(order));
-        when(authService.getUser()).thenReturn(owner);
+        when(authService.getUser()).thenReturn(AuthenticatedUser.of(owner));
 
         orderService.cancelPendingOrder(BigInteger.valueOf(4));
 